@@ -0,0 +1,82 @@
+package com.bigsonata.requests.benchmarks;
+
+import com.bigsonata.requests.AsyncRequests;
+import com.bigsonata.requests.HttpRequest;
+import com.bigsonata.requests.Requests;
+import com.bigsonata.requests.common.json.DslJsonCodec;
+import com.dslplatform.json.CompiledJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of `DslJsonCodec` and `HttpRequest.bodyJson`
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 15:05
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+  @CompiledJson
+  public static class User {
+    public int id;
+    public String first_name;
+    public String last_name;
+    public String avatar;
+  }
+
+  @CompiledJson
+  public static class UserData {
+    public User data;
+  }
+
+  private DslJsonCodec codec;
+  private Requests requests;
+  private UserData userData;
+  private byte[] json;
+
+  @Setup
+  public void setup() throws Exception {
+    codec = new DslJsonCodec(User.class, UserData.class);
+    requests = Requests.newBuilder().setIoThreads(1).setJsonCodec(codec).build(AsyncRequests.class);
+    json = StubServer.JSON_BODY.getBytes(StandardCharsets.UTF_8);
+    userData = codec.deserialize(UserData.class, json);
+  }
+
+  @TearDown
+  public void tearDown() {
+    requests.close();
+  }
+
+  @Benchmark
+  public String serialize() throws Exception {
+    return codec.serialize(userData);
+  }
+
+  @Benchmark
+  public UserData deserialize() throws Exception {
+    return codec.deserialize(UserData.class, json);
+  }
+
+  @Benchmark
+  public HttpRequest bodyJson() throws Exception {
+    return requests.post("http://127.0.0.1/users").bodyJson(userData);
+  }
+}
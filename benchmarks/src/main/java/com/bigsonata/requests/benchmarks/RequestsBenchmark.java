@@ -0,0 +1,142 @@
+package com.bigsonata.requests.benchmarks;
+
+import com.bigsonata.requests.AsyncRequests;
+import com.bigsonata.requests.HttpRequest;
+import com.bigsonata.requests.HttpResponse;
+import com.bigsonata.requests.Requests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end benchmarks of `AsyncRequests.process` against a loopback StubServer
+ *
+ * <p>`fanOut` sends `concurrency` requests at once and waits for all of them (throughput), while
+ * `single` measures the latency distribution of one request at a time. `fanOutCallback` is the
+ * future-less variant of `fanOut`. `execAll` keeps `concurrency` requests in flight while sending
+ * four times as many.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 14:35
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestsBenchmark {
+  @Param({"1", "16", "128"})
+  public int concurrency;
+
+  @Param({"128", "16384"})
+  public int responseSize;
+
+  @Param({"0"})
+  public int delay;
+
+  @Param({"false", "true"})
+  public boolean callbackOnIoThread;
+
+  private StubServer server;
+  private Requests requests;
+  private String url;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    server = StubServer.start(4);
+    Requests.Builder builder =
+        Requests.newBuilder()
+            .setMaxConnections(Math.max(concurrency, 16))
+            .setIoThreads(4)
+            .setTimeout(10000);
+    if (callbackOnIoThread) {
+      builder.setCallbackOnIoThread();
+    }
+    requests = builder.build(AsyncRequests.class);
+    url = server.bytesUrl(responseSize, delay);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    requests.close();
+    server.close();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public int fanOut() {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[concurrency];
+    for (int i = 0; i < concurrency; i++) {
+      futures[i] = requests.get(url).exec();
+    }
+    CompletableFuture.allOf(futures).join();
+
+    int bytes = 0;
+    for (CompletableFuture<?> future : futures) {
+      bytes += ((HttpResponse) future.join()).body.length;
+    }
+    return bytes;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public int fanOutCallback() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(concurrency);
+    AtomicInteger bytes = new AtomicInteger();
+    for (int i = 0; i < concurrency; i++) {
+      requests
+          .get(url)
+          .exec(
+              response -> {
+                bytes.addAndGet(response.body.length);
+                latch.countDown();
+              });
+    }
+    latch.await();
+    return bytes.get();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public int execAll() {
+    List<HttpRequest> batch = new ArrayList<>(4 * concurrency);
+    for (int i = 0; i < 4 * concurrency; i++) {
+      batch.add(requests.get(url));
+    }
+
+    int bytes = 0;
+    Iterator<HttpResponse> responses = requests.execAll(batch, concurrency);
+    while (responses.hasNext()) {
+      bytes += responses.next().body.length;
+    }
+    return bytes;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public HttpResponse single() {
+    return requests.get(url).exec().join();
+  }
+}
@@ -0,0 +1,207 @@
+package com.bigsonata.requests.benchmarks;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A tiny Netty-based Http server bound to loopback, used as a deterministic backend for benchmarks.
+ *
+ * <p>Supported endpoints:
+ *
+ * <ul>
+ *   <li>{@code /bytes?size=N&delay=M}: responds with N bytes after M milliseconds
+ *   <li>{@code /json?delay=M}: responds with a small Json document after M milliseconds
+ *   <li>{@code /echo?delay=M}: responds with the request body after M milliseconds
+ * </ul>
+ *
+ * Any method is accepted. Request bodies are discarded except by `/echo`.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 14:20
+ */
+public class StubServer implements AutoCloseable {
+  public static final String JSON_BODY =
+      "{\"data\":{\"id\":2,\"first_name\":\"Janet\",\"last_name\":\"Weaver\","
+          + "\"avatar\":\"https://reqres.in/img/faces/2-image.jpg\"}}";
+  private static final byte[] JSON_BYTES = JSON_BODY.getBytes(StandardCharsets.UTF_8);
+
+  private final EventLoopGroup bossGroup;
+  private final EventLoopGroup workerGroup;
+  private final Channel channel;
+  private final int port;
+  private final Map<Integer, ByteBuf> payloads = new ConcurrentHashMap<>();
+
+  private StubServer(int threads) throws InterruptedException {
+    bossGroup = new NioEventLoopGroup(1);
+    workerGroup = new NioEventLoopGroup(threads);
+    ServerBootstrap bootstrap =
+        new ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channel(NioServerSocketChannel.class)
+            .option(ChannelOption.SO_BACKLOG, 1024)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childHandler(
+                new ChannelInitializer<SocketChannel>() {
+                  @Override
+                  protected void initChannel(SocketChannel ch) {
+                    ch.pipeline()
+                        .addLast(new HttpServerCodec())
+                        .addLast(new HttpObjectAggregator(64 * 1024 * 1024))
+                        .addLast(new StubHandler());
+                  }
+                });
+    channel = bootstrap.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+    port = ((InetSocketAddress) channel.localAddress()).getPort();
+  }
+
+  /**
+   * Start a server on an ephemeral loopback port
+   *
+   * @param threads The number of worker threads
+   * @return The running server
+   * @throws InterruptedException If interrupted while binding
+   */
+  public static StubServer start(int threads) throws InterruptedException {
+    return new StubServer(threads);
+  }
+
+  public int port() {
+    return port;
+  }
+
+  public String baseUrl() {
+    return "http://127.0.0.1:" + port;
+  }
+
+  /**
+   * Build the url of the `/bytes` endpoint
+   *
+   * @param size Response size in bytes
+   * @param delay Response delay in ms
+   * @return The url
+   */
+  public String bytesUrl(int size, int delay) {
+    return baseUrl() + "/bytes?size=" + size + "&delay=" + delay;
+  }
+
+  public String echoUrl(int delay) {
+    return baseUrl() + "/echo?delay=" + delay;
+  }
+
+  public String jsonUrl(int delay) {
+    return baseUrl() + "/json?delay=" + delay;
+  }
+
+  @Override
+  public void close() {
+    channel.close().syncUninterruptibly();
+    workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    for (ByteBuf payload : payloads.values()) {
+      payload.release();
+    }
+  }
+
+  private ByteBuf payload(int size) {
+    return payloads.computeIfAbsent(
+        size,
+        key -> {
+          byte[] bytes = new byte[key];
+          for (int i = 0; i < key; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+          }
+          return Unpooled.unreleasableBuffer(Unpooled.directBuffer(key).writeBytes(bytes));
+        });
+  }
+
+  private static int intParam(Map<String, List<String>> params, String name, int defaultValue) {
+    List<String> values = params.get(name);
+    if (values == null || values.isEmpty()) {
+      return defaultValue;
+    }
+    return Integer.parseInt(values.get(0));
+  }
+
+  private class StubHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+      QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
+      Map<String, List<String>> params = decoder.parameters();
+      int delay = intParam(params, "delay", 0);
+      boolean keepAlive = HttpUtil.isKeepAlive(request);
+
+      FullHttpResponse response;
+      if ("/bytes".equals(decoder.path())) {
+        ByteBuf body = payload(intParam(params, "size", 0)).duplicate();
+        response = newResponse(HttpResponseStatus.OK, body, "application/octet-stream");
+      } else if ("/echo".equals(decoder.path())) {
+        ByteBuf body = request.content().retain();
+        response = newResponse(HttpResponseStatus.OK, body, "application/octet-stream");
+      } else if ("/json".equals(decoder.path())) {
+        ByteBuf body = Unpooled.wrappedBuffer(JSON_BYTES);
+        response = newResponse(HttpResponseStatus.OK, body, "application/json");
+      } else {
+        response = newResponse(HttpResponseStatus.NOT_FOUND, Unpooled.EMPTY_BUFFER, "text/plain");
+      }
+      if (keepAlive) {
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+      }
+
+      if (delay <= 0) {
+        write(ctx, response, keepAlive);
+      } else {
+        ctx.executor().schedule(() -> write(ctx, response, keepAlive), delay, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    private FullHttpResponse newResponse(HttpResponseStatus status, ByteBuf body, String type) {
+      FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, body);
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, type);
+      response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+      return response;
+    }
+
+    private void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+      if (keepAlive) {
+        ctx.writeAndFlush(response, ctx.voidPromise());
+      } else {
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      ctx.close();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.bigsonata.requests.benchmarks;
+
+import com.bigsonata.requests.common.UriBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of `UriBuilder.buildString` and of compiled url templates
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 14:50
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UriBuilderBenchmark {
+  private UriBuilder plain;
+  private UriBuilder withParameters;
+  private UriBuilder parsed;
+  private UriBuilder.Template template;
+  private long userId = 42;
+
+  @Setup
+  public void setup() {
+    plain =
+        UriBuilder.newInstance()
+            .setScheme("https")
+            .setHost("api.bigsonata.com")
+            .setPath("/users/42/orders");
+    withParameters =
+        UriBuilder.newInstance()
+            .setScheme("https")
+            .setHost("api.bigsonata.com")
+            .setPath("/users/42/orders")
+            .addParameter("since", "2018-08-19T12:05:00Z")
+            .addParameter("q", "data data")
+            .addParameter("limit", "100");
+    parsed =
+        UriBuilder.newInstance("https://api.bigsonata.com/users/42/orders?since=1534655100&limit=100");
+    template = UriBuilder.compile("https://api.bigsonata.com/users/{id}/orders?since={ts}&limit=100");
+  }
+
+  @Benchmark
+  public String buildPlain() {
+    return plain.buildString();
+  }
+
+  @Benchmark
+  public String buildWithParameters() {
+    return withParameters.buildString();
+  }
+
+  @Benchmark
+  public String buildParsed() {
+    return parsed.buildString();
+  }
+
+  @Benchmark
+  public String parseAndBuild() {
+    return UriBuilder.newInstance("https://api.bigsonata.com/users/42/orders?since=1534655100&limit=100")
+        .buildString();
+  }
+
+  @Benchmark
+  public String expandTemplate() {
+    return template.expand(userId, "2018-08-19T12:05:00Z");
+  }
+}
@@ -1,19 +1,62 @@
 package com.bigsonata.requests;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ConnectTimeoutException;
 import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.resolver.NameResolver;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.NoopDnsCache;
 import org.asynchttpclient.*;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
 import org.asynchttpclient.proxy.ProxyServer;
+import org.asynchttpclient.request.body.Body;
+import org.asynchttpclient.request.body.generator.BodyGenerator;
+import org.asynchttpclient.uri.Uri;
 import org.slf4j.Logger;
+import org.reactivestreams.Publisher;
 import org.slf4j.LoggerFactory;
+import com.bigsonata.requests.common.AdaptiveLimit;
+import com.bigsonata.requests.common.CircuitBreaker;
+import com.bigsonata.requests.common.CircuitBreakerOpenException;
+import com.bigsonata.requests.common.ConnectionPoolStats;
+import com.bigsonata.requests.common.HostLimiter;
 import com.bigsonata.requests.common.Latency;
+import com.bigsonata.requests.common.LoadBalancer;
+import com.bigsonata.requests.common.SingleFlight;
+import com.bigsonata.requests.common.cache.ResponseCache;
+import com.bigsonata.requests.common.compression.ContentCoding;
+import com.bigsonata.requests.common.dns.CachingNameResolver;
+import com.bigsonata.requests.common.json.JsonCodec;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import static org.asynchttpclient.Dsl.config;
@@ -29,12 +72,21 @@ public class AsyncRequests extends Requests {
   protected static final Logger LOGGER = LoggerFactory.getLogger(AsyncRequests.class);
   protected EventLoopGroup eventLoopGroup = null;
   protected AsyncHttpClient httpService;
-  protected ExecutorService ioExecutorService;
+  protected ExecutorService ioExecutorService = null;
+  protected Executor callbackExecutor = null; // null means callbacks run on I/O threads
+  protected NameResolver<InetAddress> nameResolver = null; // null means the default resolver
   protected ProxyServer proxyServer = null;
   private Map<String, Function<String, BoundRequestBuilder>> requestFactories = new HashMap<>();
+  private final SingleFlight<HttpResponse> singleFlight; // null if disabled
+  // Hosts with their own (fixed or adaptive) concurrency limit
+  private final Map<String, HostLimiter> hostLimiters = new ConcurrentHashMap<>();
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private int maxConnectionsPerHost;
+  private boolean limitAllHosts = false; // whether AHC's per-host limit was lifted for overrides
 
   public AsyncRequests(Builder builder) throws Exception {
     super(builder);
+    this.singleFlight = builder.coalescing ? new SingleFlight<>() : null;
     initialize();
   }
 
@@ -46,22 +98,140 @@ public class AsyncRequests extends Requests {
   }
 
   protected BoundRequestBuilder getRequestBuilder(HttpRequest httpRequest) {
-    // We strictly control HttpRequest and their factories
-    // So there's no need to check if there's any factory associated with an Http method
-    BoundRequestBuilder requestBuilder =
-        requestFactories.get(httpRequest.method).apply(httpRequest.url);
-    requestBuilder.setBody(httpRequest.body);
+    BoundRequestBuilder requestBuilder;
+    if (httpRequest.prepared != null) {
+      requestBuilder = stamp(httpRequest);
+      setBody(requestBuilder, httpRequest);
+      // Headers of the request override those of its template
+      for (String header : httpRequest.headers.keySet()) {
+        requestBuilder.setHeader(header, httpRequest.headers.get(header));
+      }
+    } else {
+      // We strictly control HttpRequest and their factories
+      // So there's no need to check if there's any factory associated with an Http method
+      requestBuilder = requestFactories.get(httpRequest.method).apply(httpRequest.url);
+      setBody(requestBuilder, httpRequest);
 
-    for (String header : httpRequest.headers.keySet()) {
-      requestBuilder.addHeader(header, httpRequest.headers.get(header));
+      for (String header : httpRequest.headers.keySet()) {
+        requestBuilder.addHeader(header, httpRequest.headers.get(header));
+      }
     }
 
     if (builder.proxyEnabled) {
       requestBuilder.setProxyServer(proxyServer);
     }
+    if (nameResolver != null) {
+      requestBuilder.setNameResolver(nameResolver);
+    }
+    if (httpRequest.timeout > 0) {
+      requestBuilder.setRequestTimeout(httpRequest.timeout);
+    }
+    if (httpRequest.readTimeout > 0) {
+      requestBuilder.setReadTimeout(httpRequest.readTimeout);
+    }
     return requestBuilder;
   }
 
+  /** Start building a request stamped from a template, reusing what was computed for it */
+  private BoundRequestBuilder stamp(HttpRequest httpRequest) {
+    PreparedRequest prepared = httpRequest.prepared;
+    String url = httpRequest.url;
+    if (url != httpRequest.preparedUrl) {
+      // Changed since it was stamped (e.g. `url` reassigned): encode it like any other url
+      BoundRequestBuilder requestBuilder = requestFactories.get(prepared.method).apply(url);
+      requestBuilder.setHeaders(prepared.encodedHeaders.copy());
+      return requestBuilder;
+    }
+    // Urls are encoded by templates, and headers validated once by them
+    BoundRequestBuilder requestBuilder =
+        new BoundRequestBuilder(httpService, prepared.method, true, false);
+    requestBuilder.setHeaders(prepared.encodedHeaders.copy());
+    int queryStart = httpRequest.queryStart;
+    String path = url.substring(prepared.pathStart, queryStart < 0 ? url.length() : queryStart);
+    String query = queryStart < 0 ? null : url.substring(queryStart + 1);
+    requestBuilder.setUri(
+        new Uri(prepared.scheme, prepared.userInfo, prepared.host, prepared.port, path, query));
+    return requestBuilder;
+  }
+
+  protected void setBody(BoundRequestBuilder requestBuilder, HttpRequest httpRequest) {
+    ContentCoding coding = compressionOf(httpRequest);
+    if (coding != ContentCoding.IDENTITY) {
+      setCompressedBody(requestBuilder, httpRequest, coding);
+    } else if (httpRequest.bodyPath != null) {
+      // AHC sends files as a FileRegion (sendfile) unless the connection is encrypted
+      requestBuilder.setBody(httpRequest.bodyPath.toFile());
+    } else if (httpRequest.bodyStream != null) {
+      requestBuilder.setBody(httpRequest.bodyStream);
+    } else if (httpRequest.bodyBuffer != null) {
+      requestBuilder.setBody(httpRequest.bodyBuffer.duplicate());
+    } else if (httpRequest.bodyProducer != null) {
+      requestBuilder.setBody(new ProducerBodyGenerator(httpRequest.bodyProducer));
+    } else {
+      requestBuilder.setBody(httpRequest.body);
+    }
+  }
+
+  /** @return The coding to compress the body of a request with */
+  private ContentCoding compressionOf(HttpRequest httpRequest) {
+    ContentCoding coding =
+        httpRequest.compression != null ? httpRequest.compression : builder.requestCompression;
+    if (coding == ContentCoding.IDENTITY
+        || httpRequest.bodyProducer != null // writes straight into Netty buffers
+        || hasHeader(httpRequest, "Content-Encoding")) {
+      return ContentCoding.IDENTITY;
+    }
+    long size;
+    if (httpRequest.body != null) {
+      size = httpRequest.body.length;
+    } else if (httpRequest.bodyBuffer != null) {
+      size = httpRequest.bodyBuffer.remaining();
+    } else if (httpRequest.bodyPath != null) {
+      if (!Files.isReadable(httpRequest.bodyPath)) {
+        return ContentCoding.IDENTITY; // let AHC report the failure
+      }
+      size = httpRequest.bodyPath.toFile().length();
+    } else {
+      // Streams have an unknown size, and no body has none
+      return httpRequest.bodyStream != null ? coding : ContentCoding.IDENTITY;
+    }
+    return size >= builder.compressionThreshold ? coding : ContentCoding.IDENTITY;
+  }
+
+  private void setCompressedBody(
+      BoundRequestBuilder requestBuilder, HttpRequest httpRequest, ContentCoding coding) {
+    requestBuilder.setHeader("Content-Encoding", coding.value);
+    if (httpRequest.body != null) {
+      requestBuilder.setBody(coding.compress(httpRequest.body));
+    } else if (httpRequest.bodyBuffer != null) {
+      ByteBuffer buffer = httpRequest.bodyBuffer.duplicate();
+      byte[] body = new byte[buffer.remaining()];
+      buffer.get(body);
+      requestBuilder.setBody(coding.compress(body));
+    } else if (httpRequest.bodyPath != null) {
+      // Files are compressed while they are sent, never buffered whole
+      requestBuilder.setBody(new CompressedFileBodyGenerator(httpRequest.bodyPath, coding));
+    } else {
+      requestBuilder.setBody(coding.compress(httpRequest.bodyStream));
+    }
+  }
+
+  private static boolean hasHeader(HttpRequest httpRequest, String name) {
+    for (String header : httpRequest.allHeaders().keySet()) {
+      if (header.equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private JsonCodec jsonCodec() throws Exception {
+    if (this.builder.jsonCodec == null) {
+      throw new Exception("Now JsonCodec provided");
+    }
+    return this.builder.jsonCodec;
+  }
+
   /**
    * Deserialize a byte array into an object instance NOTE: You have to register a JsonCodec with
    * `Requests.Builder` to use
@@ -73,10 +243,12 @@ public class AsyncRequests extends Requests {
    * @throws Exception Throws exception if there's something wrong
    */
   public <T> T toObject(Class<T> prototype, byte[] input) throws Exception {
-    if (this.builder.jsonCodec == null) {
-      throw new Exception("Now JsonCodec provided");
-    }
-    return this.builder.jsonCodec.deserialize(prototype, input);
+    return jsonCodec().deserialize(prototype, input);
+  }
+
+  @Override
+  public <T> T toObject(Class<T> prototype, InputStream input) throws Exception {
+    return jsonCodec().deserialize(prototype, input);
   }
 
   /**
@@ -89,10 +261,38 @@ public class AsyncRequests extends Requests {
    * @throws Exception Throws exception if there's something wrong
    */
   public <T> String toJson(T input) throws Exception {
-    if (this.builder.jsonCodec == null) {
-      throw new Exception("Now JsonCodec provided");
+    return jsonCodec().serialize(input);
+  }
+
+  @Override
+  public <T> byte[] toJsonBytes(T input) throws Exception {
+    return jsonCodec().serializeToBytes(input);
+  }
+
+  private void initializeNameResolver() {
+    if (builder.nameResolver != null) {
+      LOGGER.info("> nameResolver={}", builder.nameResolver.getClass().getSimpleName());
+      nameResolver = builder.nameResolver;
+    } else if (builder.dnsTtl > 0) {
+      LOGGER.info(
+          "> dnsResolver: ttl={}, negativeTtl={}, maxEntries={}",
+          builder.dnsTtl,
+          builder.dnsNegativeTtl,
+          builder.dnsMaxEntries);
+      // Caching is ours, so that entries can be refreshed ahead of their expiry
+      DnsNameResolver dnsResolver =
+          new DnsNameResolverBuilder(eventLoopGroup.next())
+              .channelType(NioDatagramChannel.class)
+              .resolveCache(NoopDnsCache.INSTANCE)
+              .build();
+      nameResolver =
+          new CachingNameResolver(
+              dnsResolver,
+              eventLoopGroup.next(),
+              builder.dnsTtl,
+              builder.dnsNegativeTtl,
+              builder.dnsMaxEntries);
     }
-    return this.builder.jsonCodec.serialize(input);
   }
 
   /** Dispose allocated resources */
@@ -102,13 +302,55 @@ public class AsyncRequests extends Requests {
       return;
     }
 
+    disposeJmx();
+    if (nameResolver != null && nameResolver != builder.nameResolver) {
+      nameResolver.close();
+    }
     eventLoopGroup.shutdownGracefully();
     try {
       httpService.close();
     } catch (IOException e) {
       onException(LOGGER, e);
     }
-    ioExecutorService.shutdown();
+    if (ioExecutorService != null) {
+      ioExecutorService.shutdown();
+    }
+  }
+
+  @Override
+  public ConnectionPoolStats connectionPoolStats() {
+    ClientStats clientStats = httpService.getClientStats();
+    Map<String, long[]> hosts = new HashMap<>();
+    for (Map.Entry<String, HostStats> host : clientStats.getStatsPerHost().entrySet()) {
+      hosts.put(
+          host.getKey(),
+          new long[] {
+            host.getValue().getHostActiveConnectionCount(),
+            host.getValue().getHostIdleConnectionCount()
+          });
+    }
+    return new ConnectionPoolStats(
+        clientStats.getTotalActiveConnectionCount(),
+        clientStats.getTotalIdleConnectionCount(),
+        hosts);
+  }
+
+  @Override
+  public Map<String, Integer> concurrencyLimits() {
+    Map<String, Integer> limits = new HashMap<>();
+    for (Map.Entry<String, HostLimiter> host : hostLimiters.entrySet()) {
+      limits.put(host.getKey(), host.getValue().limit());
+    }
+    return limits;
+  }
+
+  @Override
+  public Map<String, CircuitBreaker.State> circuitBreakers() {
+    Map<String, CircuitBreaker.State> states = new HashMap<>();
+    for (Map.Entry<String, CircuitBreaker> host : circuitBreakers.entrySet()) {
+      states.put(host.getKey(), host.getValue().state());
+    }
+    return states;
   }
 
   protected void initialize() throws Exception {
@@ -117,26 +359,131 @@ public class AsyncRequests extends Requests {
     LOGGER.info("> ioThreads={}", builder.ioThreads);
     LOGGER.info("> maxConnections={}", builder.maxConnections);
 
+    maxConnectionsPerHost =
+        builder.maxConnectionsPerHost > 0 ? builder.maxConnectionsPerHost : builder.maxConnections;
+    LOGGER.info("> maxConnectionsPerHost={}", maxConnectionsPerHost);
+    int ahcMaxConnectionsPerHost = maxConnectionsPerHost;
+    for (Map.Entry<String, Integer> host : builder.hostMaxConnections.entrySet()) {
+      LOGGER.info("> maxConnectionsPerHost[{}]={}", host.getKey(), host.getValue());
+      // AHC only knows a single per-host limit: lift it, and enforce overrides ourselves
+      ahcMaxConnectionsPerHost = Math.max(ahcMaxConnectionsPerHost, host.getValue());
+    }
+    // Then the default limit of other hosts has to be enforced by us too
+    limitAllHosts = ahcMaxConnectionsPerHost > maxConnectionsPerHost;
+    if (builder.circuitBreaker != null) {
+      LOGGER.info("> circuitBreaker: enabled");
+    }
+    if (builder.adaptiveConcurrency) {
+      LOGGER.info(
+          "> adaptiveConcurrency: initialLimit={}, maxPending={}",
+          builder.initialConcurrencyLimit,
+          builder.maxPendingRequests);
+    }
+
     eventLoopGroup = new NioEventLoopGroup(builder.ioThreads);
+    initializeNameResolver();
     DefaultAsyncHttpClientConfig config =
         config()
             .setMaxConnections(builder.maxConnections)
-            .setMaxConnectionsPerHost(builder.maxConnections)
+            .setMaxConnectionsPerHost(ahcMaxConnectionsPerHost)
+            .setPooledConnectionIdleTimeout(builder.pooledConnectionIdleTimeout)
+            .setConnectionTtl(builder.connectionTtl)
+            .setKeepAlive(builder.keepAlive)
+            .setTcpNoDelay(builder.tcpNoDelay)
+            .setSoSndBuf(builder.soSndBuf)
+            .setSoRcvBuf(builder.soRcvBuf)
             .setRequestTimeout(builder.timeout)
             .setConnectTimeout(builder.timeout)
+            .setCompressionEnforced(builder.acceptCompression)
             .setEventLoopGroup(eventLoopGroup)
             .setIoThreadsCount(builder.ioThreads)
             .build();
     httpService = Dsl.asyncHttpClient(config);
-    ioExecutorService = Executors.newFixedThreadPool(builder.ioThreads);
 
+    initializeCallbackExecutor();
     initializeProxy();
     initRequestFactories();
+    initializeJmx();
     initializeShutdownHook();
+    initializeWarmup();
 
     LOGGER.info("Requests is initialized");
   }
 
+  protected void initializeCallbackExecutor() {
+    if (builder.callbackOnIoThread) {
+      LOGGER.info("> callbacks run on I/O threads");
+      return;
+    }
+    if (builder.callbackExecutor != null) {
+      LOGGER.info("> callbacks run on a custom executor");
+      callbackExecutor = builder.callbackExecutor;
+      return;
+    }
+    ioExecutorService = Executors.newFixedThreadPool(builder.ioThreads);
+    callbackExecutor = ioExecutorService;
+  }
+
+  protected void initializeWarmup() {
+    if (builder.warmupHosts.isEmpty()) {
+      return;
+    }
+    LOGGER.info("> warmup={} x {}", builder.warmupHosts, builder.warmupConnectionsPerHost);
+    warmedUp = warmup(builder.warmupHosts, builder.warmupConnectionsPerHost);
+  }
+
+  @Override
+  public CompletableFuture<Void> warmup(Collection<String> hosts, int connectionsPerHost) {
+    List<CompletableFuture<Void>> results = new ArrayList<>();
+    for (String host : hosts) {
+      LoadBalancer service = services.isEmpty() ? null : services.get(Uri.create(host).getHost());
+      if (service == null) {
+        results.add(warmup(host, connectionsPerHost));
+        continue;
+      }
+      // Requests to a service are sent to its endpoints
+      for (LoadBalancer.Endpoint endpoint : service.endpoints()) {
+        results.add(warmup(endpoint.baseUrl, connectionsPerHost));
+      }
+    }
+    return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private CompletableFuture<Void> warmup(String host, int connections) {
+    // Concurrent requests can't share a connection, so each one opens its own
+    List<CompletableFuture<Response>> attempts = new ArrayList<>();
+    for (int i = 0; i < connections; i++) {
+      BoundRequestBuilder requestBuilder = httpService.prepareHead(host);
+      if (builder.proxyEnabled) {
+        requestBuilder.setProxyServer(proxyServer);
+      }
+      if (nameResolver != null) {
+        requestBuilder.setNameResolver(nameResolver);
+      }
+      attempts.add(requestBuilder.execute().toCompletableFuture());
+    }
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    CompletableFuture.allOf(attempts.toArray(new CompletableFuture<?>[0]))
+        .whenComplete(
+            (ignored, e) -> {
+              Throwable reason = null;
+              for (CompletableFuture<Response> attempt : attempts) {
+                if (!attempt.isCompletedExceptionally()) {
+                  result.complete(null);
+                  return;
+                }
+                reason = e;
+              }
+              if (reason == null) {
+                result.complete(null); // no connections requested
+              } else {
+                result.completeExceptionally(
+                    new Exception("Unable to warm up connections to " + host, reason));
+              }
+            });
+    return result;
+  }
+
   protected void initializeProxy() {
     if (!builder.proxyEnabled) {
       LOGGER.info("No proxy configured");
@@ -149,32 +496,747 @@ public class AsyncRequests extends Requests {
     LOGGER.info("Proxy is initialized");
   }
 
-  public CompletableFuture<HttpResponse> process(HttpRequest httpRequest) {
-    CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+  @Override
+  public void process(HttpRequest httpRequest, ResponseCallback callback) {
+    if (singleFlight != null
+        && HttpRequest.METHOD_GET.equals(httpRequest.method)
+        && !httpRequest.hasBody()
+        // Calls are shared with requests which may not retry nor hedge alike
+        && httpRequest.retryPolicy == null
+        && httpRequest.hedgePolicy == null) {
+      coalesce(httpRequest, callback);
+    } else {
+      route(httpRequest, callback);
+    }
+  }
+
+  /**
+   * Share one call between concurrent requests with the same method, url, headers and timeouts.
+   * Requests with a deadline only share calls with each other, and stop waiting at their own
+   * deadline
+   */
+  private void coalesce(HttpRequest httpRequest, ResponseCallback callback) {
+    String key = httpRequest.method + " " + httpRequest.url;
+    Map<String, String> headers = httpRequest.allHeaders();
+    if (httpRequest.prepared != null && httpRequest.headers.isEmpty()) {
+      key += httpRequest.prepared.headersKey; // computed once per template
+    } else if (!headers.isEmpty()) {
+      key += " " + new TreeMap<>(headers);
+    }
+    if (httpRequest.timeout > 0 || httpRequest.connectTimeout > 0 || httpRequest.readTimeout > 0) {
+      key +=
+          " timeouts="
+              + httpRequest.timeout
+              + "/"
+              + httpRequest.connectTimeout
+              + "/"
+              + httpRequest.readTimeout;
+    }
+    if (httpRequest.deadline > 0) {
+      key += " deadline";
+    }
+    ResponseCallback deliver =
+        httpRequest.deadline > 0 ? withDeadline(httpRequest, callback) : callback;
+    singleFlight.execute(
+        key,
+        done -> route(httpRequest, done::accept),
+        response -> {
+          Runnable task =
+              () -> {
+                try {
+                  deliver.onResponse(
+                      response.request == httpRequest ? response : response.viewFor(httpRequest));
+                } catch (Exception e) {
+                  // Don't deprive other callers of the response
+                  onException(LOGGER, e);
+                }
+              };
+          if (response.request == httpRequest || httpRequest.blocking) {
+            task.run(); // already dispatched for this request
+          } else {
+            // Dispatched for the request which made the call: if it was blocking, this is an I/O
+            // thread, which is no place for the callbacks of others
+            execute(task);
+          }
+        },
+        e -> new HttpResponse(httpRequest, e));
+  }
+
+  /**
+   * Bound the wait of a request for a shared call by its deadline
+   *
+   * @return A callback delivering either the response or, at the deadline, a TimeoutException
+   */
+  private ResponseCallback withDeadline(HttpRequest httpRequest, ResponseCallback callback) {
+    AtomicBoolean delivered = new AtomicBoolean();
+    ScheduledFuture<?> timer;
+    try {
+      timer =
+          eventLoopGroup.schedule(
+              () -> {
+                if (delivered.compareAndSet(false, true)) {
+                  HttpResponse httpResponse =
+                      new HttpResponse(
+                          httpRequest,
+                          new TimeoutException(
+                              "Deadline exceeded while waiting for " + httpRequest.url));
+                  dispatch(callback, httpResponse);
+                }
+              },
+              Math.max(0, httpRequest.deadline - System.currentTimeMillis()),
+              TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      return callback; // shutting down
+    }
+    return response -> {
+      if (delivered.compareAndSet(false, true)) {
+        timer.cancel(false);
+        callback.onResponse(response);
+      }
+    };
+  }
+
+  private void route(HttpRequest httpRequest, ResponseCallback callback) {
+    if (responseCache == null) {
+      exchange(httpRequest, getRequestBuilder(httpRequest).build(), callback);
+    } else if (!HttpRequest.METHOD_GET.equals(httpRequest.method)) {
+      // Unsafe requests invalidate cached responses of their url (RFC 7234, section 4.4)
+      exchange(
+          httpRequest,
+          getRequestBuilder(httpRequest).build(),
+          response -> {
+            if (response.isSuccess && response.statusCode < 400) {
+              responseCache.invalidate(httpRequest.url);
+            }
+            callback.onResponse(response);
+          });
+    } else if (httpRequest.hasBody()
+        || hasHeader(httpRequest, Http.HEADER_IF_NONE_MATCH)
+        || hasHeader(httpRequest, Http.HEADER_IF_MODIFIED_SINCE)) {
+      // Conditional requests are the caller's business
+      exchange(httpRequest, getRequestBuilder(httpRequest).build(), callback);
+    } else {
+      processCached(httpRequest, callback);
+    }
+  }
+
+  private void processCached(HttpRequest httpRequest, ResponseCallback callback) {
+    long requestTime = System.currentTimeMillis();
+    Map<String, String> headers = httpRequest.allHeaders();
+    ResponseCache.Entry entry = responseCache.get(httpRequest.url, headers, requestTime);
+    if (entry != null && entry.isFresh(requestTime, headers)) {
+      HttpResponse httpResponse = cached(httpRequest, entry, requestTime);
+      httpResponse.latency = new Latency(requestTime - httpRequest.timeStamp, 0);
+      httpResponse.latency.nanos(
+          Latency.Phase.TOTAL, System.nanoTime() - httpRequest.nanoTimeStamp);
+      dispatch(callback, httpResponse);
+      return;
+    }
+
     BoundRequestBuilder requestBuilder = getRequestBuilder(httpRequest);
+    if (entry != null && entry.etag() != null) {
+      requestBuilder.setHeader(Http.HEADER_IF_NONE_MATCH, entry.etag());
+    }
+    if (entry != null && entry.lastModified() != null) {
+      requestBuilder.setHeader(Http.HEADER_IF_MODIFIED_SINCE, entry.lastModified());
+    }
+    exchange(
+        httpRequest,
+        requestBuilder.build(),
+        response -> {
+          long responseTime = System.currentTimeMillis();
+          if (!response.isSuccess) {
+            callback.onResponse(response);
+          } else if (entry != null && response.statusCode == 304) {
+            ResponseCache.Entry refreshed =
+                responseCache.revalidated(entry, response.headers, requestTime, responseTime);
+            HttpResponse httpResponse = cached(httpRequest, refreshed, responseTime);
+            httpResponse.latency = response.latency;
+            callback.onResponse(httpResponse);
+          } else {
+            responseCache.put(
+                httpRequest.url,
+                headers,
+                response.statusCode,
+                response.headers,
+                response.body,
+                requestTime,
+                responseTime);
+            callback.onResponse(response);
+          }
+        });
+  }
 
-    long currentTime = System.currentTimeMillis();
-    long internalLatency = currentTime - httpRequest.timeStamp;
+  private static HttpResponse cached(HttpRequest httpRequest, ResponseCache.Entry entry, long now) {
+    HttpHeaders headers = new DefaultHttpHeaders().add(entry.headers);
+    headers.set(Http.HEADER_AGE, entry.age(now) / 1000);
+    HttpResponse httpResponse =
+        new HttpResponse(httpRequest, entry.statusCode, headers, entry.body());
+    httpResponse.fromCache = true;
+    return httpResponse;
+  }
 
-    final ListenableFuture<Response> futureResponse = requestBuilder.execute();
+  /** Send a request over the network, retrying it if its policy allows, and deliver its response */
+  private void exchange(HttpRequest httpRequest, Request request, ResponseCallback callback) {
+    RetryPolicy policy =
+        httpRequest.retryPolicy != null ? httpRequest.retryPolicy : builder.retryPolicy;
+    if (policy == null || !policy.isRetryable(httpRequest)) {
+      transmitHedged(httpRequest, request, callback);
+      return;
+    }
+    policy.budget.deposit();
+    attempt(httpRequest, request, callback, policy, 1, 0);
+  }
 
-    Runnable responseHandler =
-        () -> {
-          HttpResponse httpResponse;
+  private void attempt(
+      HttpRequest httpRequest,
+      Request request,
+      ResponseCallback callback,
+      RetryPolicy policy,
+      int attempt,
+      long previousDelay) {
+    transmitHedged(
+        httpRequest,
+        request,
+        response -> {
+          response.attempts = attempt;
+          if (!policy.shouldRetry(response, attempt) || !policy.budget.tryWithdraw()) {
+            callback.onResponse(response);
+            return;
+          }
+          long delay = policy.nextDelay(previousDelay, response);
+          if (httpRequest.deadline > 0
+              && System.currentTimeMillis() + delay >= httpRequest.deadline) {
+            callback.onResponse(response); // the retry couldn't make it anyway
+            return;
+          }
           try {
-            Response response = futureResponse.get();
-            httpResponse = new HttpResponse(httpRequest, response);
-          } catch (Exception e) {
-            httpResponse = new HttpResponse(httpRequest, e);
+            // Wait on a timer rather than on a thread
+            eventLoopGroup.schedule(
+                () -> attempt(httpRequest, request, callback, policy, attempt + 1, delay),
+                delay,
+                TimeUnit.MILLISECONDS);
+          } catch (RejectedExecutionException e) {
+            // Shutting down
+            callback.onResponse(response);
           }
+        });
+  }
+
+  /** Send a request over the network, hedging it if its policy allows, and deliver its response */
+  private void transmitHedged(HttpRequest httpRequest, Request request, ResponseCallback callback) {
+    HedgePolicy policy =
+        httpRequest.hedgePolicy != null ? httpRequest.hedgePolicy : builder.hedgePolicy;
+    if (policy == null || !policy.isHedgeable(httpRequest)) {
+      transmit(httpRequest, request, callback);
+      return;
+    }
+    policy.budget.deposit();
+    new Hedge(httpRequest, request, callback, policy).launch();
+  }
+
+  /** Races duplicates of a request: the first successful response wins, the others are cancelled */
+  private class Hedge {
+    private final HttpRequest httpRequest;
+    private final Request request;
+    private final ResponseCallback callback;
+    private final HedgePolicy policy;
+    private final String host;
+    private final List<TimedAsyncHandler<Void>> legs = new ArrayList<>();
+    private final long startedAt = System.nanoTime(); // when the primary leg started
+    private int launched = 0;
+    private int finished = 0;
+    private boolean done = false;
+
+    Hedge(HttpRequest httpRequest, Request request, ResponseCallback callback, HedgePolicy policy) {
+      this.httpRequest = httpRequest;
+      this.request = request;
+      this.callback = callback;
+      this.policy = policy;
+      this.host = request.getUri().getHost() + ":" + request.getUri().getExplicitPort();
+    }
+
+    void launch() {
+      int leg;
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        leg = ++launched;
+      }
+      TimedAsyncHandler<Void> handler =
+          transmit(httpRequest, request, response -> onResponse(leg, response));
+      boolean cancel;
+      synchronized (this) {
+        cancel = done;
+        legs.add(handler);
+      }
+      if (cancel) {
+        handler.cancel();
+      } else if (leg <= policy.maxHedges) {
+        try {
+          eventLoopGroup.schedule(this::hedge, policy.delay(host), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+          // Shutting down
+        }
+      }
+    }
+
+    private void hedge() {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+      }
+      if (policy.budget.tryWithdraw()) {
+        launch();
+      }
+    }
 
-          long networkLatency = System.currentTimeMillis() - currentTime;
-          httpResponse.latency = new Latency(internalLatency, networkLatency);
-          result.complete(httpResponse);
+    private void onResponse(int leg, HttpResponse response) {
+      List<TimedAsyncHandler<Void>> losers = new ArrayList<>();
+      long now = System.nanoTime();
+      boolean lost;
+      synchronized (this) {
+        finished++;
+        lost = done;
+        if (!lost) {
+          if (!response.isSuccess && finished < launched) {
+            return; // failed while other legs may still succeed
+          }
+          done = true;
+          for (int i = 0; i < legs.size(); i++) {
+            if (i != leg - 1) {
+              losers.add(legs.get(i));
+            }
+          }
+        }
+      }
+      if (lost) {
+        if (response.isSuccess) {
+          // A losing leg which completed before it could be cancelled (cancelled legs are
+          // delivered as failures): a genuine sample of the latency of the host
+          policy.record(host, response.latency.nanos(Latency.Phase.TOTAL));
+        }
+        return;
+      }
+      for (TimedAsyncHandler<Void> loser : losers) {
+        loser.cancel();
+      }
+      if (response.isSuccess) {
+        // The primary leg took at least this long. Recording only winners would drop every slow
+        // primary which a hedge beat, and hedges would then fire ever earlier
+        policy.record(host, now - startedAt);
+      }
+      callback.onResponse(response);
+    }
+  }
+
+  /**
+   * Send a request over the network once and deliver its response
+   *
+   * @return The handler of the request, e.g. to cancel it
+   */
+  private TimedAsyncHandler<Void> transmit(
+      HttpRequest httpRequest, Request request, ResponseCallback callback) {
+    TimedAsyncHandler<Void> handler =
+        new TimedAsyncHandler<Void>(httpRequest, request) {
+          private final Response.ResponseBuilder responseBuilder = new Response.ResponseBuilder();
+
+          @Override
+          public State onStatusReceived(HttpResponseStatus status) {
+            statusReceived(status.getStatusCode());
+            responseBuilder.accumulate(status);
+            return isCancelled() ? State.ABORT : State.CONTINUE;
+          }
+
+          @Override
+          public State onHeadersReceived(HttpHeaders headers) {
+            responseBuilder.accumulate(headers);
+            return isCancelled() ? State.ABORT : State.CONTINUE;
+          }
+
+          @Override
+          public State onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+            responseBuilder.accumulate(bodyPart);
+            return isCancelled() ? State.ABORT : State.CONTINUE;
+          }
+
+          @Override
+          public State onTrailingHeadersReceived(HttpHeaders headers) {
+            responseBuilder.accumulate(headers);
+            return State.CONTINUE;
+          }
+
+          @Override
+          public Void onCompleted() {
+            Latency breakdown = completed();
+            HttpResponse httpResponse;
+            if (isCancelled()) {
+              // Aborted mid-body (e.g. a losing hedge): what was received is truncated
+              httpResponse = new HttpResponse(httpRequest, new CancellationException());
+            } else {
+              httpResponse = new HttpResponse(httpRequest, responseBuilder.build());
+            }
+            httpResponse.latency = breakdown;
+            dispatch(callback, httpResponse);
+            return null;
+          }
+
+          @Override
+          public void onThrowable(Throwable t) {
+            Exception reason = t instanceof Exception ? (Exception) t : new ExecutionException(t);
+            HttpResponse httpResponse = new HttpResponse(httpRequest, reason);
+            httpResponse.latency = failed(reason);
+            dispatch(callback, httpResponse);
+          }
         };
+    send(request, handler);
+    return handler;
+  }
+
+  @Override
+  public CompletableFuture<StreamingHttpResponse> processStreaming(HttpRequest httpRequest) {
+    CompletableFuture<StreamingHttpResponse> result = new CompletableFuture<>();
+    Request request = getRequestBuilder(httpRequest).build();
+
+    send(
+        request,
+        new StreamingHandler(httpRequest, request) {
+          private int statusCode;
+          private HttpHeaders headers;
+
+          @Override
+          public State onStatusReceived(HttpResponseStatus status) {
+            statusReceived(status.getStatusCode());
+            statusCode = status.getStatusCode();
+            return State.CONTINUE;
+          }
+
+          @Override
+          public State onHeadersReceived(HttpHeaders headers) {
+            this.headers = headers;
+            return State.CONTINUE;
+          }
+
+          @Override
+          public State onStream(Publisher<HttpResponseBodyPart> publisher) {
+            StreamingHttpResponse response =
+                new StreamingHttpResponse(httpRequest, statusCode, headers, publisher);
+            // BODY and TOTAL are filled in once the body has been consumed
+            response.latency = latency;
+            deliver(response);
+            return State.CONTINUE;
+          }
+
+          @Override
+          public State onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+            // Never invoked: body parts flow through the publisher handed to onStream
+            return State.CONTINUE;
+          }
+
+          @Override
+          public void onThrowable(Throwable t) {
+            // Failures after onStream are signalled to the body subscriber instead
+            Exception reason = t instanceof Exception ? (Exception) t : new ExecutionException(t);
+            StreamingHttpResponse response = new StreamingHttpResponse(httpRequest, reason);
+            response.latency = failed(reason);
+            deliver(response);
+          }
 
-    futureResponse.addListener(responseHandler, ioExecutorService);
+          @Override
+          public Void onCompleted() {
+            completed();
+            return null;
+          }
 
+          private void deliver(StreamingHttpResponse response) {
+            if (result.isDone()) {
+              return;
+            }
+            execute(() -> result.complete(response));
+          }
+        });
     return result;
   }
+
+  /** Send a request, first waiting for a permit if its host has its own concurrency limit */
+  private void send(Request logicalRequest, TimedAsyncHandler<?> handler) {
+    if (isPastDeadline(logicalRequest, handler)) {
+      return;
+    }
+    Request request = balance(logicalRequest, handler);
+    if (builder.circuitBreaker != null) {
+      String host = request.getUri().getHost() + ":" + request.getUri().getExplicitPort();
+      CircuitBreaker breaker =
+          circuitBreakers.computeIfAbsent(host, key -> builder.circuitBreaker.build());
+      long permit = breaker.tryAcquire(System.currentTimeMillis());
+      if (permit == CircuitBreaker.REJECTED) {
+        // Fail fast, without waiting for timeouts nor holding connections
+        handler.unguard(); // not sent: says nothing about the endpoint balanced to
+        handler.onThrowable(new CircuitBreakerOpenException(host));
+        return;
+      }
+      handler.guardedBy(breaker, permit);
+    }
+    HostLimiter limiter = limiterOf(request.getUri());
+    if (limiter == null) {
+      sendNow(request, handler);
+      return;
+    }
+    boolean accepted =
+        limiter.submit(
+            () -> {
+              handler.admitted(limiter);
+              sendNow(request, handler);
+            });
+    if (!accepted) {
+      handler.unguard(); // rejected locally: says nothing about the host
+      handler.onThrowable(
+          new RejectedExecutionException(
+              "Concurrency limit of " + limiter.limit() + " exceeded for " + request.getUri()));
+    }
+  }
+
+  private void sendNow(Request request, TimedAsyncHandler<?> handler) {
+    if (handler.isCancelled()) {
+      handler.onThrowable(new CancellationException());
+      return;
+    }
+    HttpRequest httpRequest = handler.httpRequest;
+    if (httpRequest.deadline > 0) {
+      // Time may have passed in the queue of a limiter
+      if (isPastDeadline(request, handler)) {
+        return;
+      }
+      long remaining = httpRequest.deadline - System.currentTimeMillis();
+      int timeout = request.getRequestTimeout() > 0 ? request.getRequestTimeout() : builder.timeout;
+      if (remaining < timeout) {
+        request = new RequestBuilder(request).setRequestTimeout((int) remaining).build();
+      }
+    }
+    try {
+      handler.sent(httpService.executeRequest(request, handler));
+      if (httpRequest.connectTimeout > 0 && httpRequest.connectTimeout < builder.timeout) {
+        // AHC only supports a connect timeout per client
+        eventLoopGroup.schedule(
+            () ->
+                handler.abortUnlessConnected(
+                    new ConnectTimeoutException(
+                        "Connection timed out after "
+                            + httpRequest.connectTimeout
+                            + "ms: "
+                            + handler.request.getUri())),
+            httpRequest.connectTimeout,
+            TimeUnit.MILLISECONDS);
+      }
+    } catch (Exception e) {
+      // e.g. the client is closed
+      handler.onThrowable(e);
+    }
+  }
+
+  /**
+   * Resolve a request to a logical service against one of its endpoints
+   *
+   * @return The resolved request, or the request itself if it isn't sent to a service
+   */
+  private Request balance(Request request, TimedAsyncHandler<?> handler) {
+    if (services.isEmpty()) {
+      return request;
+    }
+    Uri uri = request.getUri();
+    LoadBalancer balancer = services.get(uri.getHost());
+    if (balancer == null) {
+      return request;
+    }
+    LoadBalancer.Endpoint endpoint = balancer.pick();
+    handler.balancedBy(balancer, endpoint);
+    return new RequestBuilder(request).setUrl(endpoint.url(uri.getPath(), uri.getQuery())).build();
+  }
+
+  /**
+   * Fail a request which can't be sent before its deadline anymore
+   *
+   * @return True if the request failed
+   */
+  private boolean isPastDeadline(Request request, TimedAsyncHandler<?> handler) {
+    long deadline = handler.httpRequest.deadline;
+    if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+      handler.unguard(); // expired locally: says nothing about the host
+      handler.onThrowable(
+          new TimeoutException("Deadline exceeded before sending to " + request.getUri()));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  int capacity(HttpRequest httpRequest) {
+    Uri uri;
+    try {
+      uri = Uri.create(httpRequest.url);
+    } catch (IllegalArgumentException e) {
+      return Integer.MAX_VALUE; // it will fail anyway
+    }
+    if (services.containsKey(uri.getHost())) {
+      return Integer.MAX_VALUE; // spread over endpoints
+    }
+    HostLimiter limiter = limiterOf(uri);
+    if (limiter == null) {
+      return Integer.MAX_VALUE;
+    }
+    return Math.max(0, limiter.limit() - limiter.inUse() - limiter.pending());
+  }
+
+  private HostLimiter limiterOf(Uri uri) {
+    if (builder.hostMaxConnections.isEmpty() && !builder.adaptiveConcurrency) {
+      return null;
+    }
+    String host = uri.getHost() + ":" + uri.getExplicitPort();
+    HostLimiter limiter = hostLimiters.get(host);
+    if (limiter != null) {
+      return limiter;
+    }
+    Integer limit = builder.hostMaxConnections.get(host);
+    if (limit == null) {
+      limit = builder.hostMaxConnections.get(uri.getHost());
+    }
+    if (builder.adaptiveConcurrency) {
+      int max = limit != null ? limit : maxConnectionsPerHost;
+      return hostLimiters.computeIfAbsent(
+          host,
+          key ->
+              HostLimiter.adaptive(
+                  new AdaptiveLimit(builder.initialConcurrencyLimit, 1, max),
+                  builder.maxPendingRequests));
+    }
+    if (limit == null) {
+      if (!limitAllHosts) {
+        return null; // AHC enforces the default limit
+      }
+      limit = maxConnectionsPerHost;
+    }
+    int max = limit;
+    return hostLimiters.computeIfAbsent(host, key -> HostLimiter.fixed(max));
+  }
+
+  private abstract static class StreamingHandler extends TimedAsyncHandler<Void>
+      implements StreamedAsyncHandler<Void> {
+    StreamingHandler(HttpRequest httpRequest, Request request) {
+      super(httpRequest, request);
+    }
+  }
+
+  /**
+   * Hand a response over to its callback, either directly on the current (I/O) thread or through
+   * the configured callback executor. Exceptions thrown by callbacks are logged and swallowed so
+   * that a response is never delivered twice.
+   */
+  protected void dispatch(ResponseCallback callback, HttpResponse httpResponse) {
+    Runnable task =
+        () -> {
+          try {
+            callback.onResponse(httpResponse);
+          } catch (Exception e) {
+            onException(LOGGER, e);
+          }
+        };
+    if (httpResponse.request.blocking) {
+      // Just wake up the waiting thread: no need to hop to the callback executor
+      task.run();
+      return;
+    }
+    execute(task);
+  }
+
+  private void execute(Runnable task) {
+    if (callbackExecutor == null) {
+      task.run();
+      return;
+    }
+    try {
+      callbackExecutor.execute(task);
+    } catch (RejectedExecutionException e) {
+      // The executor is shutting down; don't leave the caller hanging
+      task.run();
+    }
+  }
+
+  /** Adapts a BodyProducer to AHC's pull-based Body, writing straight into Netty's chunk buffers */
+  private static class ProducerBodyGenerator implements BodyGenerator {
+    private final BodyProducer producer;
+
+    ProducerBodyGenerator(BodyProducer producer) {
+      this.producer = producer;
+    }
+
+    @Override
+    public Body createBody() {
+      return new Body() {
+        @Override
+        public long getContentLength() {
+          return -1; // chunked
+        }
+
+        @Override
+        public BodyState transferTo(ByteBuf target) throws IOException {
+          ByteBuffer buffer = target.nioBuffer(target.writerIndex(), target.writableBytes());
+          int written = producer.produce(buffer);
+          if (written < 0) {
+            return BodyState.STOP;
+          }
+          target.writerIndex(target.writerIndex() + written);
+          return BodyState.CONTINUE;
+        }
+
+        @Override
+        public void close() {}
+      };
+    }
+  }
+
+  /**
+   * Compresses a file while it is sent. Every send (e.g. retries and hedges) opens the file
+   * afresh, and only once the body is actually written
+   */
+  private static class CompressedFileBodyGenerator implements BodyGenerator {
+    private final Path path;
+    private final ContentCoding coding;
+
+    CompressedFileBodyGenerator(Path path, ContentCoding coding) {
+      this.path = path;
+      this.coding = coding;
+    }
+
+    @Override
+    public Body createBody() {
+      return new Body() {
+        private InputStream stream = null; // opened on the first transfer
+
+        @Override
+        public long getContentLength() {
+          return -1; // chunked
+        }
+
+        @Override
+        public BodyState transferTo(ByteBuf target) throws IOException {
+          if (stream == null) {
+            stream = coding.compress(Files.newInputStream(path));
+          }
+          if (target.writeBytes(stream, target.writableBytes()) < 0) {
+            return BodyState.STOP;
+          }
+          return BodyState.CONTINUE;
+        }
+
+        @Override
+        public void close() throws IOException {
+          if (stream != null) {
+            stream.close();
+          }
+        }
+      };
+    }
+  }
 }
@@ -0,0 +1,27 @@
+package com.bigsonata.requests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A producer of request bodies generated on the fly. Bodies are pulled chunk by chunk while the
+ * request is being written and are sent with chunked transfer encoding.
+ *
+ * <p>Producers are invoked on I/O threads, so they should be cheap (the same caveat applies to
+ * `InputStream` bodies).
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 16:40
+ */
+@FunctionalInterface
+public interface BodyProducer {
+  /**
+   * Write the next chunk of the body into a buffer
+   *
+   * @param target The buffer to fill, from its position up to its limit
+   * @return The number of bytes written, or -1 when the body is complete
+   * @throws IOException Throws exception if there's something wrong
+   */
+  int produce(ByteBuffer target) throws IOException;
+}
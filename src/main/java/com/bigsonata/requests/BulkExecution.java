@@ -0,0 +1,66 @@
+package com.bigsonata.requests;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Iterates over the responses of many requests in completion order, keeping a bounded number of
+ * them outstanding. Requests are pulled lazily from their source as responses are consumed, so
+ * memory stays flat however many requests there are.
+ *
+ * <p>Not thread-safe: the iterator is meant to be consumed by a single thread.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 21:50
+ */
+class BulkExecution implements Iterator<HttpResponse> {
+  private final Requests requests;
+  private final Iterator<HttpRequest> source;
+  private final int maxInFlight;
+  private final BlockingQueue<HttpResponse> completed = new LinkedBlockingQueue<>();
+  private int outstanding = 0; // sent but not yet consumed
+
+  BulkExecution(Requests requests, Iterator<HttpRequest> source, int maxInFlight) {
+    this.requests = requests;
+    this.source = source;
+    this.maxInFlight = maxInFlight;
+  }
+
+  private void fill() {
+    while (outstanding < maxInFlight && source.hasNext()) {
+      HttpRequest httpRequest = source.next();
+      outstanding++;
+      try {
+        requests.process(httpRequest, completed::add);
+      } catch (RuntimeException e) {
+        completed.add(new HttpResponse(httpRequest, e)); // or next() would wait for it forever
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return outstanding > 0;
+  }
+
+  @Override
+  public HttpResponse next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    HttpResponse response;
+    try {
+      response = completed.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for responses", e);
+    }
+    outstanding--;
+    fill();
+    return response;
+  }
+}
@@ -0,0 +1,163 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.LatencyHistogram;
+import com.bigsonata.requests.common.RetryBudget;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Describes how idempotent requests are hedged: if no response arrives within a delay, a
+ * duplicate is sent, the first successful response wins and the others are cancelled.
+ *
+ * <p>The delay is either fixed or a percentile of the latencies observed per host (falling back to
+ * the fixed delay until enough samples are collected). Hedges are capped by a budget shared by
+ * all requests using the policy, so that they can't double load during incidents.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 23:30
+ */
+public class HedgePolicy {
+  private static final int MIN_SAMPLES = 100;
+  private static final int UPDATE_INTERVAL = 100; // samples between delay updates
+  private static final int WINDOW = 10000; // samples before forgetting older latencies
+
+  public final long delay; // ms
+  public final double percentile; // 0 for a fixed delay
+  public final int maxHedges;
+  public final RetryBudget budget;
+  private final Map<String, HostLatency> hosts = new ConcurrentHashMap<>();
+
+  HedgePolicy(Builder builder) {
+    this.delay = builder.delay;
+    this.percentile = builder.percentile;
+    this.maxHedges = builder.maxHedges;
+    this.budget = new RetryBudget(builder.budgetRatio, builder.budgetReserve);
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Check whether a request may be hedged
+   *
+   * @param request The request
+   * @return True for GET requests without streamed bodies
+   */
+  public boolean isHedgeable(HttpRequest request) {
+    return maxHedges > 0
+        && Http.METHOD_GET.equals(request.method)
+        && request.bodyStream == null
+        && request.bodyProducer == null;
+  }
+
+  /**
+   * Get the delay before hedging a request to a host
+   *
+   * @param host The host (and port)
+   * @return The delay (in ms)
+   */
+  public long delay(String host) {
+    if (percentile <= 0) {
+      return delay;
+    }
+    HostLatency latency = hosts.get(host);
+    if (latency == null || latency.delay < 0) {
+      return delay;
+    }
+    return latency.delay;
+  }
+
+  /**
+   * Record the latency of a successful response from a host
+   *
+   * @param host The host (and port)
+   * @param nanos The latency (in ns)
+   */
+  public void record(String host, long nanos) {
+    if (percentile <= 0) {
+      return;
+    }
+    hosts.computeIfAbsent(host, key -> new HostLatency()).record(nanos, percentile);
+  }
+
+  private static class HostLatency {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong samples = new AtomicLong();
+    volatile long delay = -1; // ms, -1 until enough samples
+
+    void record(long nanos, double percentile) {
+      histogram.record(nanos);
+      long count = samples.incrementAndGet();
+      if (count >= MIN_SAMPLES && count % UPDATE_INTERVAL == 0) {
+        delay = Math.max(1, histogram.snapshot().percentile(percentile) / 1000000);
+        if (count % WINDOW == 0) {
+          histogram.reset();
+        }
+      }
+    }
+  }
+
+  public static class Builder {
+    private long delay = 50; // ms
+    private double percentile = 0;
+    private int maxHedges = 1;
+    private double budgetRatio = 0.1;
+    private int budgetReserve = 10;
+
+    public HedgePolicy build() {
+      return new HedgePolicy(this);
+    }
+
+    /**
+     * [Optional] Hedge after a fixed delay. Default is 50ms
+     *
+     * @param delay The delay (in ms)
+     * @return Current instance of Builder
+     */
+    public Builder setDelay(long delay) {
+      this.delay = delay;
+      return this;
+    }
+
+    /**
+     * [Optional] Hedge after a percentile of latencies observed per host, e.g. 95. The fixed
+     * delay is used until enough latencies are observed.
+     *
+     * @param percentile The percentile
+     * @return Current instance of Builder
+     */
+    public Builder setPercentile(double percentile) {
+      this.percentile = percentile;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the maximum number of duplicates per request. Default is 1
+     *
+     * @param maxHedges Max duplicates
+     * @return Current instance of Builder
+     */
+    public Builder setMaxHedges(int maxHedges) {
+      this.maxHedges = maxHedges;
+      return this;
+    }
+
+    /**
+     * [Optional] Cap hedges to a fraction of requests. Default is 10% of requests, with a reserve
+     * of 10 hedges
+     *
+     * @param ratio Hedges allowed per request
+     * @param reserve Hedges allowed up-front, also the maximum the budget accumulates
+     * @return Current instance of Builder
+     */
+    public Builder setBudget(double ratio, int reserve) {
+      this.budgetRatio = ratio;
+      this.budgetReserve = reserve;
+      return this;
+    }
+  }
+}
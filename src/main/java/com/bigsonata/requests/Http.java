@@ -15,5 +15,8 @@ public class Http {
   public static final String HEADER_CONTENT_TYPE = "Content-Type";
   public static final String HEADER_USER_AGENT = "User-Agent";
   public static final String HEADER_ACCEPT = "Accept";
+  public static final String HEADER_AGE = "Age";
+  public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+  public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
   public static final String STRING_APPLICATION_JSON = "application/json";
 }
@@ -1,7 +1,14 @@
 package com.bigsonata.requests;
 
 import com.bigsonata.requests.common.UriBuilder;
+import com.bigsonata.requests.common.VirtualThreads;
+import com.bigsonata.requests.common.compression.ContentCoding;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -16,14 +23,34 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class HttpRequest extends Http {
   private static AtomicInteger COUNTER = new AtomicInteger(0);
-  public final int id = COUNTER.incrementAndGet();
+  private static final int ID_BLOCK = 64;
+  // Platform threads take ids in blocks, so that they don't contend on the counter
+  private static final ThreadLocal<int[]> IDS = ThreadLocal.withInitial(() -> new int[2]);
+  public final int id = nextId();
 
   protected final Requests requests;
   public String method = METHOD_GET;
   public String url;
   public byte[] body;
+  // Alternative body sources. At most one body source is set at a time
+  public Path bodyPath;
+  public InputStream bodyStream;
+  public ByteBuffer bodyBuffer;
+  public BodyProducer bodyProducer;
   public Map<String, String> headers = new HashMap<>();
   public long timeStamp = System.currentTimeMillis();
+  public long nanoTimeStamp = System.nanoTime();
+  public RetryPolicy retryPolicy = null; // null means the default policy of Requests
+  public HedgePolicy hedgePolicy = null; // null means the default policy of Requests
+  public int timeout = 0; // ms, per attempt. 0 means the timeout of Requests
+  public int connectTimeout = 0; // ms. 0 means the timeout of Requests
+  public int readTimeout = 0; // ms, between reads. 0 means the read timeout of Requests
+  public long deadline = 0; // epoch ms, across attempts and hedges. 0 means none
+  public ContentCoding compression = null; // null means the default coding of Requests
+  boolean blocking = false; // a thread waits for the response: deliver it from I/O threads
+  PreparedRequest prepared = null; // the template this request was stamped from, if any
+  String preparedUrl = null; // the url as expanded from the template
+  int queryStart = -1; // index of the '?' in preparedUrl
 
   protected HttpRequest(Requests requests, String method, String url) {
     this.requests = requests;
@@ -32,6 +59,41 @@ public class HttpRequest extends Http {
     this.url = url;
   }
 
+  /** Stamp a request from a template. Headers of the template aren't copied into `headers` */
+  HttpRequest(PreparedRequest prepared, String url, int queryStart) {
+    this.requests = prepared.requests;
+    this.method = prepared.method;
+    this.url = url;
+    this.prepared = prepared;
+    this.preparedUrl = url;
+    this.queryStart = queryStart;
+  }
+
+  private static int nextId() {
+    if (VirtualThreads.isVirtual()) {
+      return COUNTER.incrementAndGet(); // virtual threads are too many (and short-lived) for blocks
+    }
+    int[] ids = IDS.get(); // next id, end of block
+    if (ids[0] == ids[1]) {
+      ids[0] = COUNTER.getAndAdd(ID_BLOCK) + 1;
+      ids[1] = ids[0] + ID_BLOCK;
+    }
+    return ids[0]++;
+  }
+
+  /** @return All headers sent with the request, including those of its template */
+  Map<String, String> allHeaders() {
+    if (prepared == null) {
+      return headers;
+    }
+    if (headers.isEmpty()) {
+      return prepared.headers;
+    }
+    Map<String, String> all = new HashMap<>(prepared.headers);
+    all.putAll(headers);
+    return all;
+  }
+
   protected HttpRequest(Requests requests, String method, UriBuilder uriBuilder) {
     this(requests, method, uriBuilder.buildString());
   }
@@ -52,18 +114,178 @@ public class HttpRequest extends Http {
   }
 
   public HttpRequest body(String body) {
-    this.body = body.getBytes();
-    return this;
+    return body(body, StandardCharsets.UTF_8);
+  }
+
+  public HttpRequest body(String body, Charset charset) {
+    return body(body.getBytes(charset));
   }
 
   public HttpRequest body(byte[] body) {
+    clearBody();
     this.body = body;
     return this;
   }
 
+  /**
+   * Send a file as the body. On plain Http, the file is transferred with zero-copy `sendfile`
+   * instead of being read onto the heap.
+   *
+   * @param path The file
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest body(Path path) {
+    clearBody();
+    this.bodyPath = path;
+    return this;
+  }
+
+  /**
+   * Stream the body from an InputStream using chunked transfer encoding. The stream is closed once
+   * consumed. NOTE: Such requests can not be replayed.
+   *
+   * @param stream The stream
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest body(InputStream stream) {
+    clearBody();
+    this.bodyStream = stream;
+    return this;
+  }
+
+  /**
+   * Send the remaining bytes of a buffer as the body. The buffer is wrapped, not copied, so it must
+   * not be modified until the request completes.
+   *
+   * @param buffer The buffer
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest body(ByteBuffer buffer) {
+    clearBody();
+    this.bodyBuffer = buffer;
+    return this;
+  }
+
+  /**
+   * Generate the body on the fly using chunked transfer encoding
+   *
+   * @param producer The producer
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest body(BodyProducer producer) {
+    clearBody();
+    this.bodyProducer = producer;
+    return this;
+  }
+
+  boolean hasBody() {
+    return body != null
+        || bodyPath != null
+        || bodyStream != null
+        || bodyBuffer != null
+        || bodyProducer != null;
+  }
+
+  private void clearBody() {
+    this.body = null;
+    this.bodyPath = null;
+    this.bodyStream = null;
+    this.bodyBuffer = null;
+    this.bodyProducer = null;
+  }
+
   public <T> HttpRequest bodyJson(T input) throws Exception {
     headerContentTypeJson();
-    this.body = this.requests.toJson(input).getBytes();
+    return body(this.requests.toJsonBytes(input));
+  }
+
+  /**
+   * Override the retry policy of Requests for this request
+   *
+   * @param retryPolicy The policy, e.g. `RetryPolicy.NONE` to disable retries
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest retry(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+    return this;
+  }
+
+  /**
+   * Override the timeout of Requests for this request. It applies to every attempt
+   *
+   * @param timeout The timeout (in ms)
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest timeout(int timeout) {
+    this.timeout = timeout;
+    return this;
+  }
+
+  /**
+   * Set a connect timeout for this request. Only timeouts shorter than the one of Requests apply
+   *
+   * @param connectTimeout The timeout (in ms)
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest connectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+    return this;
+  }
+
+  /**
+   * Set a read timeout for this request: the maximum time between two reads
+   *
+   * @param readTimeout The timeout (in ms)
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest readTimeout(int readTimeout) {
+    this.readTimeout = readTimeout;
+    return this;
+  }
+
+  /**
+   * Set an absolute deadline for this request, shared by all its retries and hedges. Attempts
+   * which can't start before the deadline fail right away with a TimeoutException, and attempts in
+   * flight time out at the deadline.
+   *
+   * @param deadline The deadline (in ms since epoch)
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest deadline(long deadline) {
+    this.deadline = deadline;
+    return this;
+  }
+
+  /**
+   * Set a deadline relative to the creation of this request. See `deadline(long)`
+   *
+   * @param budget Time allowed for the request (in ms)
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest deadlineIn(long budget) {
+    return deadline(timeStamp + budget);
+  }
+
+  /**
+   * Override the hedge policy of Requests for this request
+   *
+   * @param hedgePolicy The policy
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest hedge(HedgePolicy hedgePolicy) {
+    this.hedgePolicy = hedgePolicy;
+    return this;
+  }
+
+  /**
+   * Override the compression of Requests for this body, e.g. IDENTITY for data which is already
+   * compressed. Bodies below the threshold of Requests are still sent as they are
+   *
+   * @param coding The coding
+   * @return Current instance of HttpRequest
+   */
+  public HttpRequest compress(ContentCoding coding) {
+    this.compression = coding;
     return this;
   }
 
@@ -102,6 +324,35 @@ public class HttpRequest extends Http {
     return this.requests.process(this);
   }
 
+  /**
+   * Execute the request and wait for its response. See `Requests.send`
+   *
+   * @return The response
+   * @throws InterruptedException If the waiting thread is interrupted
+   */
+  public HttpResponse send() throws InterruptedException {
+    return this.requests.send(this);
+  }
+
+  /**
+   * Execute the request without allocating a future
+   *
+   * @param callback The callback receiving the response
+   */
+  public void exec(ResponseCallback callback) {
+    this.requests.process(this, callback);
+  }
+
+  /**
+   * Execute the request, streaming the response body instead of buffering it. See
+   * `StreamingHttpResponse` for the consumption contract.
+   *
+   * @return A future resolving once response headers are received
+   */
+  public CompletableFuture<StreamingHttpResponse> stream() {
+    return this.requests.processStreaming(this);
+  }
+
   public static class HttpDeleteRequest extends HttpRequest {
     public HttpDeleteRequest(Requests requests, String url) {
       super(requests, METHOD_DELETE, url);
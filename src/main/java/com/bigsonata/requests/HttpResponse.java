@@ -1,5 +1,6 @@
 package com.bigsonata.requests;
 
+import io.netty.handler.codec.http.HttpHeaders;
 import org.asynchttpclient.Response;
 import com.bigsonata.requests.common.Latency;
 
@@ -11,8 +12,11 @@ import com.bigsonata.requests.common.Latency;
  * @time: 08:12
  */
 public class HttpResponse extends Http {
-  private Response response;
+  int statusCode;
+  HttpHeaders headers;
   public boolean isSuccess;
+  public boolean fromCache = false; // served (or revalidated) from the response cache
+  public int attempts = 1; // including retries
   public Exception reason; // if not success
   public byte[] body;
   public Latency latency;
@@ -25,10 +29,19 @@ public class HttpResponse extends Http {
   }
 
   public HttpResponse(HttpRequest request, Response response) {
+    this(
+        request,
+        response.getStatusCode(),
+        response.getHeaders(),
+        response.getResponseBodyAsBytes());
+  }
+
+  public HttpResponse(HttpRequest request, int statusCode, HttpHeaders headers, byte[] body) {
     this(request);
     this.isSuccess = true;
-    this.body = response.getResponseBodyAsBytes();
-    this.response = response;
+    this.statusCode = statusCode;
+    this.headers = headers;
+    this.body = body;
   }
 
   public HttpResponse(HttpRequest request, Exception reason) {
@@ -37,19 +50,43 @@ public class HttpResponse extends Http {
     this.reason = reason;
   }
 
+  /**
+   * Create a view of this response for another request. The body is shared, not copied
+   *
+   * @param request The other request
+   * @return The view
+   */
+  HttpResponse viewFor(HttpRequest request) {
+    HttpResponse view =
+        isSuccess
+            ? new HttpResponse(request, statusCode, headers, body)
+            : new HttpResponse(request, reason);
+    view.fromCache = fromCache;
+    view.latency = latency;
+    view.attempts = attempts;
+    return view;
+  }
+
   public String header(String key) throws Exception {
     if (!isSuccess) {
       throw new Exception("Invalid response");
     }
 
-    return response.getHeader(key);
+    return headers.get(key);
+  }
+
+  public HttpHeaders headers() throws Exception {
+    if (!isSuccess) {
+      throw new Exception("Invalid response");
+    }
+    return headers;
   }
 
   public int statusCode() throws Exception {
     if (!isSuccess) {
       throw new Exception("Invalid response");
     }
-    return response.getStatusCode();
+    return statusCode;
   }
 
   public String headerContentType() throws Exception {
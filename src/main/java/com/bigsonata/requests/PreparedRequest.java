@@ -0,0 +1,138 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.UriBuilder;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable, thread-safe template of requests, for hot paths sending many nearly identical
+ * requests. Everything but the variable parts of the url is computed once: headers are validated
+ * and encoded, the origin (scheme, host and port) is parsed, and the rest of the url is compiled
+ * (see `UriBuilder.compile`). Requests are then stamped from the template with
+ * `request(values...)`.
+ *
+ * <p>Templates are absolute urls whose path and query may hold `{name}` placeholders, e.g.
+ * `http://api/users/{id}/orders?since={ts}`. Literals must already be valid (encoded) url text,
+ * while values are percent-encoded when expanded.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 02:40
+ */
+public final class PreparedRequest {
+  public final String method;
+  public final String urlTemplate;
+  final Requests requests;
+  // Origin of every url, as parsed once
+  final String scheme;
+  final String userInfo;
+  final String host;
+  final int port;
+  final int pathStart; // where the path starts in expanded urls
+  private final String origin;
+  private final UriBuilder.Template template; // of the path and query
+  final Map<String, String> headers; // unmodifiable, including default headers of Requests
+  final HttpHeaders encodedHeaders; // never mutated: stamp copies
+  final String headersKey; // " " + headers in a canonical order, to coalesce requests
+
+  PreparedRequest(Requests requests, String method, String urlTemplate) throws Exception {
+    this(requests, method, urlTemplate, requests.builder.defaultHeaders);
+  }
+
+  private PreparedRequest(
+      Requests requests, String method, String urlTemplate, Map<String, String> headers)
+      throws Exception {
+    this.requests = requests;
+    this.method = method;
+    this.urlTemplate = urlTemplate;
+
+    int authority = urlTemplate.indexOf("://");
+    if (authority < 0) {
+      throw new Exception("Templates must be absolute urls: " + urlTemplate);
+    }
+    int end = authority + 3;
+    while (end < urlTemplate.length() && "/?#".indexOf(urlTemplate.charAt(end)) < 0) {
+      end++;
+    }
+    String origin = urlTemplate.substring(0, end);
+    if (origin.indexOf('{') >= 0) {
+      throw new Exception("Templates can't have placeholders in their origin: " + urlTemplate);
+    }
+    if (urlTemplate.indexOf('#') >= 0) {
+      throw new Exception("Templates can't have fragments: " + urlTemplate);
+    }
+    try {
+      URI uri = new URI(origin);
+      this.scheme = uri.getScheme();
+      this.userInfo = uri.getRawUserInfo();
+      this.host = uri.getHost();
+      this.port = uri.getPort();
+    } catch (URISyntaxException e) {
+      throw new Exception("Invalid template " + urlTemplate + ": " + e.getMessage());
+    }
+    if (host == null) {
+      throw new Exception("Templates must have a host: " + urlTemplate);
+    }
+    this.pathStart = end;
+    this.origin = origin;
+    try {
+      this.template = UriBuilder.compile(urlTemplate.substring(end));
+    } catch (IllegalArgumentException e) {
+      throw new Exception(e.getMessage());
+    }
+
+    this.headers = Collections.unmodifiableMap(new HashMap<>(headers));
+    DefaultHttpHeaders encodedHeaders = new DefaultHttpHeaders(true); // validated once, here
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      encodedHeaders.add(header.getKey(), header.getValue());
+    }
+    this.encodedHeaders = encodedHeaders;
+    this.headersKey = headers.isEmpty() ? "" : " " + new TreeMap<>(headers);
+  }
+
+  /**
+   * Derive a template sending one more header
+   *
+   * @param key The name of the header
+   * @param value The value of the header
+   * @return A new template
+   * @throws Exception If the header is invalid
+   */
+  public PreparedRequest header(String key, String value) throws Exception {
+    Map<String, String> headers = new HashMap<>(this.headers);
+    headers.put(key, value);
+    return new PreparedRequest(requests, method, urlTemplate, headers);
+  }
+
+  /** @return The names of placeholders, in order */
+  public List<String> placeholders() {
+    return template.names();
+  }
+
+  /**
+   * Stamp a request from the template. Further headers and a body may be set on the request
+   *
+   * @param values The values of placeholders, in order
+   * @return The request
+   */
+  public HttpRequest request(Object... values) {
+    StringBuilder url =
+        new StringBuilder(origin.length() + template.literalLength() + 16 * values.length);
+    String expanded = template.expand(url.append(origin), values).toString();
+    // Values are encoded, so the first '?' starts the query
+    return new HttpRequest(this, expanded, expanded.indexOf('?', pathStart));
+  }
+
+  @Override
+  public String toString() {
+    return method + " " + urlTemplate;
+  }
+}
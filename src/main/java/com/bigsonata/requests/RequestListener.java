@@ -0,0 +1,22 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.Latency;
+
+/**
+ * A listener notified about the lifecycle of every request, e.g. to feed an external metrics
+ * system. Register with `Requests.Builder.addListener`.
+ *
+ * <p>Listeners are invoked on I/O threads and must be fast and non-blocking. Exceptions thrown by
+ * listeners are logged and ignored.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 18:40
+ */
+public interface RequestListener {
+  default void onStart(HttpRequest request) {}
+
+  default void onResponse(HttpRequest request, int statusCode, Latency latency) {}
+
+  default void onFailure(HttpRequest request, Exception reason, Latency latency) {}
+}
@@ -0,0 +1,214 @@
+package com.bigsonata.requests;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Reactive Streams publisher of the responses to a publisher of requests, in completion order
+ *
+ * <p>Requests are pulled from upstream only when a slot is free and the subscriber asked for the
+ * response: a slot is held from the moment a request is pulled until its response is delivered.
+ * Backpressure thus propagates from the subscriber to request submission, and at most
+ * `maxInFlight` requests (or responses) are held at any time.
+ *
+ * <p>Failures of requests are delivered as responses with `isSuccess == false`. Errors of the
+ * upstream are delivered once outstanding responses are.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 01:40
+ */
+class RequestPipeline implements Publisher<HttpResponse> {
+  private final Requests requests;
+  private final Publisher<HttpRequest> upstream;
+  private final int maxInFlight;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  RequestPipeline(Requests requests, Publisher<HttpRequest> upstream, int maxInFlight) {
+    this.requests = requests;
+    this.upstream = upstream;
+    this.maxInFlight = maxInFlight;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super HttpResponse> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(long n) {}
+
+            @Override
+            public void cancel() {}
+          });
+      subscriber.onError(new IllegalStateException("Pipelines support a single subscriber"));
+      return;
+    }
+    upstream.subscribe(new Pipe(subscriber));
+  }
+
+  private class Pipe implements Subscriber<HttpRequest>, Subscription {
+    private final Subscriber<? super HttpResponse> downstream;
+    private final Queue<HttpResponse> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger readyCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger(); // sent, without a response
+    private final AtomicInteger pulled = new AtomicInteger(); // requested from upstream, not sent
+    private final AtomicLong requested = new AtomicLong(); // demand of downstream
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Subscription subscription;
+    private volatile HttpRequest last = null; // most recently sent
+    private volatile boolean upstreamDone = false;
+    private volatile Throwable upstreamError = null;
+    private volatile Throwable pendingError = null; // set before cancelled, for downstream
+    private volatile boolean cancelled = false;
+    private boolean terminated = false; // guarded by the drain loop
+
+    Pipe(Subscriber<? super HttpResponse> downstream) {
+      this.downstream = downstream;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      if (this.subscription != null) {
+        subscription.cancel();
+        return;
+      }
+      this.subscription = subscription;
+      downstream.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(HttpRequest httpRequest) {
+      if (cancelled) {
+        return;
+      }
+      inFlight.incrementAndGet();
+      pulled.decrementAndGet();
+      last = httpRequest;
+      try {
+        requests.process(httpRequest, this::onResponse);
+      } catch (RuntimeException e) {
+        onResponse(new HttpResponse(httpRequest, e)); // or its slot would be held forever
+        return;
+      }
+      drain(); // pull more if its host has room
+    }
+
+    private void onResponse(HttpResponse response) {
+      ready.offer(response);
+      readyCount.incrementAndGet();
+      inFlight.decrementAndGet();
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      upstreamError = throwable;
+      upstreamDone = true;
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      upstreamDone = true;
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        // Signalled by the drain loop, so that it's never concurrent with onNext (rule 1.3)
+        pendingError =
+            new IllegalArgumentException("Non-positive request signals are illegal: " + n);
+        cancel();
+        drain();
+        return;
+      }
+      requested.accumulateAndGet(n, (current, x) -> current + x < 0 ? Long.MAX_VALUE : current + x);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscription.cancel();
+    }
+
+    /**
+     * Bound pulls by the room left at the host of the last request (requests mostly go to the same
+     * hosts), so that requests don't pile up in the queue of its limiter. One request is always
+     * allowed while none is outstanding, as nothing else would trigger further pulls
+     */
+    private long hostCapacity() {
+      HttpRequest previous = last;
+      long outstanding = inFlight.get() + pulled.get();
+      long capacity = previous == null ? 1 : requests.capacity(previous) - pulled.get();
+      return outstanding == 0 ? Math.max(1, capacity) : capacity;
+    }
+
+    /** Deliver ready responses and pull requests, from a single thread at a time */
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        if (terminated) {
+          return;
+        }
+        long emitted = 0;
+        long demand = requested.get();
+        while (emitted < demand && !cancelled) {
+          HttpResponse response = ready.poll();
+          if (response == null) {
+            break;
+          }
+          readyCount.decrementAndGet();
+          downstream.onNext(response);
+          emitted++;
+        }
+        if (emitted > 0 && demand != Long.MAX_VALUE) {
+          demand = requested.addAndGet(-emitted);
+        }
+        if (cancelled) {
+          ready.clear();
+          terminated = true;
+          if (pendingError != null) {
+            downstream.onError(pendingError);
+          }
+          return;
+        }
+        if (upstreamDone && inFlight.get() == 0 && readyCount.get() == 0) {
+          terminated = true;
+          if (upstreamError != null) {
+            downstream.onError(upstreamError);
+          } else {
+            downstream.onComplete();
+          }
+          return;
+        }
+        if (!upstreamDone) {
+          // Every pulled request holds a slot, and will consume a unit of demand
+          long occupied = inFlight.get() + readyCount.get() + pulled.get();
+          long credit = Math.min(maxInFlight - occupied, demand - occupied);
+          credit = Math.min(credit, hostCapacity());
+          if (credit > 0) {
+            pulled.addAndGet((int) credit);
+            subscription.request(credit);
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
@@ -1,13 +1,34 @@
 package com.bigsonata.requests;
 
+import io.netty.resolver.NameResolver;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import com.bigsonata.requests.common.json.JsonCodec;
+import com.bigsonata.requests.common.CircuitBreaker;
+import com.bigsonata.requests.common.ConnectionPoolStats;
+import com.bigsonata.requests.common.LatencyStats;
+import com.bigsonata.requests.common.LoadBalancer;
+import com.bigsonata.requests.common.RequestCounters;
+import com.bigsonata.requests.common.cache.ResponseCache;
+import com.bigsonata.requests.common.compression.ContentCoding;
 import com.bigsonata.requests.common.UriBuilder;
 
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * Base class for crafting Requests instances
@@ -16,11 +37,103 @@ import java.util.concurrent.CompletableFuture;
  * @date: 8/19/18
  * @time: 11:07
  */
-public abstract class Requests {
+public abstract class Requests implements AutoCloseable {
   protected final Builder builder;
+  protected final LatencyStats latencyStats; // null if disabled
+  protected final RequestCounters counters; // null if disabled
+  protected final RequestListener[] listeners;
+  protected final ResponseCache responseCache; // null if disabled
+  protected final Map<String, LoadBalancer> services = new HashMap<>();
+  private ObjectName jmxName = null;
+  protected CompletableFuture<Void> warmedUp = CompletableFuture.completedFuture(null);
 
   protected Requests(Builder builder) throws Exception {
     this.builder = builder;
+    this.latencyStats = builder.latencyHistograms ? new LatencyStats() : null;
+    this.counters = builder.metrics ? new RequestCounters() : null;
+    this.listeners = builder.listeners.toArray(new RequestListener[0]);
+    this.responseCache =
+        builder.responseCacheBytes > 0
+            ? new ResponseCache(builder.responseCacheBytes, builder.responseCacheOffHeap)
+            : null;
+    for (LoadBalancer.Builder service : builder.services) {
+      LoadBalancer balancer = service.build();
+      services.put(balancer.name, balancer);
+    }
+  }
+
+  /**
+   * Get the response cache, e.g. to read its stats or invalidate entries. NOTE: You have to
+   * enable it with `Requests.Builder.setResponseCache`
+   *
+   * @return The cache, or null if disabled
+   */
+  public ResponseCache responseCache() {
+    return responseCache;
+  }
+
+  /**
+   * Snapshot per-host, per-method request counters. NOTE: You have to enable them with
+   * `Requests.Builder.setMetrics`
+   *
+   * @return Snapshots, or an empty list if metrics are disabled
+   */
+  public List<RequestCounters.Snapshot> counters() {
+    if (counters == null) {
+      return Collections.emptyList();
+    }
+    return counters.snapshot();
+  }
+
+  /**
+   * Snapshot the state of the connection pool
+   *
+   * @return Active and idle connections, in total and per host
+   */
+  public ConnectionPoolStats connectionPoolStats() {
+    return ConnectionPoolStats.EMPTY;
+  }
+
+  /**
+   * Get the current concurrency limits of hosts which have one, either adaptive or set with
+   * `Requests.Builder.setMaxConnectionsPerHost(String, int)`
+   *
+   * @return Limits per host (and port)
+   */
+  public Map<String, Integer> concurrencyLimits() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Get the load balancers of services, e.g. to inspect their endpoints
+   *
+   * @return Load balancers per service name
+   */
+  public Map<String, LoadBalancer> services() {
+    return Collections.unmodifiableMap(services);
+  }
+
+  /**
+   * Get the states of circuit breakers. NOTE: You have to enable them with
+   * `Requests.Builder.setCircuitBreaker`
+   *
+   * @return States per host (and port)
+   */
+  public Map<String, CircuitBreaker.State> circuitBreakers() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Snapshot per-host, per-method latency histograms of every request phase. NOTE: You have to
+   * enable them with `Requests.Builder.setLatencyHistograms`
+   *
+   * @return Snapshots, or an empty list if histograms are disabled
+   */
+  public List<LatencyStats.Snapshot> latencies() {
+    if (latencyStats == null) {
+      return Collections.emptyList();
+    }
+    return latencyStats.snapshot();
   }
 
   /**
@@ -36,9 +149,21 @@ public abstract class Requests {
   public abstract <T> T toObject(Class<T> prototype, byte[] input) throws Exception;
 
   public <T> T toObject(Class<T> prototype, String input) throws Exception {
-    return toObject(prototype, input.getBytes());
+    return toObject(prototype, input.getBytes(StandardCharsets.UTF_8));
   }
 
+  /**
+   * Deserialize a stream of Json into an object instance without buffering it as a whole first.
+   * NOTE: You have to register a JsonCodec with `Requests.Builder` to use
+   *
+   * @param prototype A class
+   * @param input The stream
+   * @param <T> A class
+   * @return An object
+   * @throws Exception Throws exception if there's something wrong
+   */
+  public abstract <T> T toObject(Class<T> prototype, InputStream input) throws Exception;
+
   /**
    * Serialize an object instance into a Json string NOTE: You have to register a JsonCodec with
    * `Requests.Builder` to use
@@ -50,6 +175,17 @@ public abstract class Requests {
    */
   public abstract <T> String toJson(T input) throws Exception;
 
+  /**
+   * Serialize an object instance into UTF-8 Json bytes, without an intermediate String. NOTE: You
+   * have to register a JsonCodec with `Requests.Builder` to use
+   *
+   * @param input The instance
+   * @param <T> A class
+   * @return Json bytes
+   * @throws Exception Throws exception if there's something wrong
+   */
+  public abstract <T> byte[] toJsonBytes(T input) throws Exception;
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -59,10 +195,43 @@ public abstract class Requests {
     protected String proxyHost = "";
     protected int proxyPort = 80;
     protected int maxConnections = 16;
+    protected int maxConnectionsPerHost = -1; // same as maxConnections
+    protected Map<String, Integer> hostMaxConnections = new HashMap<>();
+    protected int pooledConnectionIdleTimeout = 60000; // ms
+    protected int connectionTtl = -1; // ms, unlimited
+    protected boolean keepAlive = true;
+    protected boolean tcpNoDelay = true;
+    protected int soSndBuf = -1; // OS default
+    protected int soRcvBuf = -1; // OS default
     protected int ioThreads = 8;
     protected int timeout = 1000; // ms
     protected JsonCodec jsonCodec = null;
     protected Map<String, String> defaultHeaders = new HashMap<>();
+    protected Executor callbackExecutor = null;
+    protected boolean callbackOnIoThread = false;
+    protected boolean latencyHistograms = false;
+    protected boolean metrics = false;
+    protected String jmxName = null;
+    protected List<RequestListener> listeners = new ArrayList<>();
+    protected List<String> warmupHosts = new ArrayList<>();
+    protected long responseCacheBytes = 0; // disabled
+    protected boolean coalescing = false;
+    protected RetryPolicy retryPolicy = null;
+    protected HedgePolicy hedgePolicy = null;
+    protected CircuitBreaker.Builder circuitBreaker = null;
+    protected List<LoadBalancer.Builder> services = new ArrayList<>();
+    protected NameResolver<InetAddress> nameResolver = null;
+    protected long dnsTtl = 0; // ms, disabled
+    protected long dnsNegativeTtl = 0; // ms
+    protected int dnsMaxEntries = 0;
+    protected boolean acceptCompression = false;
+    protected ContentCoding requestCompression = ContentCoding.IDENTITY;
+    protected int compressionThreshold = 1024; // bytes
+    protected boolean adaptiveConcurrency = false;
+    protected int initialConcurrencyLimit = 16;
+    protected int maxPendingRequests = 0;
+    protected boolean responseCacheOffHeap = false;
+    protected int warmupConnectionsPerHost = 0;
 
     public <T extends Requests> T build(Class<T> prototype) throws Exception {
       Class[] args = new Class[1]; // Our constructor has 1 arguments
@@ -95,6 +264,281 @@ public abstract class Requests {
       return this;
     }
 
+    /**
+     * [Optional] Set maximum connections to any single host. Default is `maxConnections`.
+     *
+     * @param maxConnections Max connections per host
+     * @return Current instance of Builder
+     */
+    public Builder setMaxConnectionsPerHost(int maxConnections) {
+      this.maxConnectionsPerHost = maxConnections;
+      return this;
+    }
+
+    /**
+     * [Optional] Set maximum connections to a specific host, overriding `maxConnectionsPerHost`.
+     * Requests beyond the limit are queued (without blocking) until a connection is released,
+     * instead of failing.
+     *
+     * @param host The host, optionally with a port (e.g. `api.example.com:8443`)
+     * @param maxConnections Max connections to the host
+     * @return Current instance of Builder
+     */
+    public Builder setMaxConnectionsPerHost(String host, int maxConnections) {
+      this.hostMaxConnections.put(host, maxConnections);
+      return this;
+    }
+
+    /**
+     * [Optional] Close pooled connections which have been idle for longer than this. Default is
+     * 60000ms
+     *
+     * @param timeout Idle timeout (in ms)
+     * @return Current instance of Builder
+     */
+    public Builder setPooledConnectionIdleTimeout(int timeout) {
+      this.pooledConnectionIdleTimeout = timeout;
+      return this;
+    }
+
+    /**
+     * [Optional] Retire pooled connections older than this, so that traffic rebalances when
+     * backends behind a load balancer change. Default is -1 (unlimited)
+     *
+     * @param ttl Connection TTL (in ms)
+     * @return Current instance of Builder
+     */
+    public Builder setConnectionTtl(int ttl) {
+      this.connectionTtl = ttl;
+      return this;
+    }
+
+    /**
+     * [Optional] Reuse connections across requests. Default is true.
+     *
+     * @param keepAlive Whether to keep connections alive
+     * @return Current instance of Builder
+     */
+    public Builder setKeepAlive(boolean keepAlive) {
+      this.keepAlive = keepAlive;
+      return this;
+    }
+
+    /**
+     * [Optional] Set TCP_NODELAY on sockets. Default is true.
+     *
+     * @param tcpNoDelay Whether to disable Nagle's algorithm
+     * @return Current instance of Builder
+     */
+    public Builder setTcpNoDelay(boolean tcpNoDelay) {
+      this.tcpNoDelay = tcpNoDelay;
+      return this;
+    }
+
+    /**
+     * [Optional] Set socket send/receive buffer sizes. Default is -1 (OS default)
+     *
+     * @param sendBufferSize SO_SNDBUF (in bytes)
+     * @param receiveBufferSize SO_RCVBUF (in bytes)
+     * @return Current instance of Builder
+     */
+    public Builder setSocketBufferSizes(int sendBufferSize, int receiveBufferSize) {
+      this.soSndBuf = sendBufferSize;
+      this.soRcvBuf = receiveBufferSize;
+      return this;
+    }
+
+    /**
+     * [Optional] Warm up connections to hosts right after initialization. Track progress with
+     * `Requests.warmedUp()`
+     *
+     * @param hosts Base urls of hosts, e.g. `https://api.example.com`, or of services, e.g.
+     *     `http://users` to warm up each of their endpoints
+     * @param connectionsPerHost The number of connections to open per host
+     * @return Current instance of Builder
+     */
+    public Builder setWarmup(Collection<String> hosts, int connectionsPerHost) {
+      this.warmupHosts = new ArrayList<>(hosts);
+      this.warmupConnectionsPerHost = connectionsPerHost;
+      return this;
+    }
+
+    /**
+     * [Optional] Cache GET responses in memory, following Http caching rules (RFC 7234): fresh
+     * responses are served without contacting the origin, stale ones are revalidated with
+     * `If-None-Match`/`If-Modified-Since`. Disabled by default.
+     *
+     * @param maxBytes Maximum total size of cached bodies
+     * @return Current instance of Builder
+     */
+    public Builder setResponseCache(long maxBytes) {
+      return setResponseCache(maxBytes, false);
+    }
+
+    /**
+     * [Optional] Cache GET responses in memory. See `setResponseCache(long)`
+     *
+     * @param maxBytes Maximum total size of cached bodies
+     * @param offHeap Whether to keep cached bodies outside of the Java heap
+     * @return Current instance of Builder
+     */
+    public Builder setResponseCache(long maxBytes, boolean offHeap) {
+      this.responseCacheBytes = maxBytes;
+      this.responseCacheOffHeap = offHeap;
+      return this;
+    }
+
+    /**
+     * [Optional] Let concurrent GET requests with the same url and headers share a single network
+     * call. Every caller gets its own HttpResponse, sharing the same body array (which must
+     * therefore not be modified). Default is false.
+     *
+     * @param coalescing Whether to coalesce identical requests
+     * @return Current instance of Builder
+     */
+    public Builder setCoalescing(boolean coalescing) {
+      this.coalescing = coalescing;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the default retry policy. Requests may override it with
+     * `HttpRequest.retry`. Default is no retries.
+     *
+     * @param retryPolicy The policy
+     * @return Current instance of Builder
+     */
+    public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the default hedge policy for GET requests. Requests may override it with
+     * `HttpRequest.hedge`. Default is no hedging.
+     *
+     * @param hedgePolicy The policy
+     * @return Current instance of Builder
+     */
+    public Builder setHedgePolicy(HedgePolicy hedgePolicy) {
+      this.hedgePolicy = hedgePolicy;
+      return this;
+    }
+
+    /**
+     * [Optional] Resolve host names with Netty's asynchronous DNS resolver instead of the
+     * (blocking) resolver of the JVM, caching addresses for `ttl` and refreshing them in the
+     * background before they expire. Failures are cached for `negativeTtl`. Disabled by default.
+     *
+     * @param ttl How long addresses are cached (in ms)
+     * @param negativeTtl How long failures are cached (in ms)
+     * @param maxEntries The maximum number of cached hosts
+     * @return Current instance of Builder
+     */
+    public Builder setDnsResolver(long ttl, long negativeTtl, int maxEntries) {
+      this.dnsTtl = ttl;
+      this.dnsNegativeTtl = negativeTtl;
+      this.dnsMaxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * [Optional] Advertise `Accept-Encoding: gzip,deflate` on requests without one. Compressed
+     * responses are inflated chunk by chunk as they arrive, so only the decompressed body is ever
+     * buffered. Default is false (compressed responses are inflated either way).
+     *
+     * @param acceptCompression Whether to ask for compressed responses
+     * @return Current instance of Builder
+     */
+    public Builder setAcceptCompression(boolean acceptCompression) {
+      this.acceptCompression = acceptCompression;
+      return this;
+    }
+
+    /**
+     * [Optional] Compress request bodies of at least `threshold` bytes, setting their
+     * `Content-Encoding`. Streamed bodies (of unknown size) are compressed while they are sent.
+     * Requests may override the coding with `HttpRequest.compress`. Default is IDENTITY (no
+     * compression) and a threshold of 1024 bytes.
+     *
+     * @param coding The coding of request bodies
+     * @param threshold The minimum size of bodies to compress (in bytes)
+     * @return Current instance of Builder
+     */
+    public Builder setRequestCompression(ContentCoding coding, int threshold) {
+      this.requestCompression = coding;
+      this.compressionThreshold = threshold;
+      return this;
+    }
+
+    /**
+     * [Optional] Resolve host names with a custom resolver, e.g. a `StaticNameResolver` to run
+     * offline. It takes precedence over `setDnsResolver`. Default is the resolver of the JVM.
+     *
+     * @param nameResolver The resolver
+     * @return Current instance of Builder
+     */
+    public Builder setNameResolver(NameResolver<InetAddress> nameResolver) {
+      this.nameResolver = nameResolver;
+      return this;
+    }
+
+    /**
+     * [Optional] Register a logical service with several endpoints. Urls whose host is the name
+     * of the service (e.g. `http://orders/v1/items`) are sent to one of its endpoints, picked per
+     * attempt. See `LoadBalancer`
+     *
+     * @param name The name of the service
+     * @param baseUrls Base urls of its endpoints, e.g. `http://10.0.0.1:8080`
+     * @return Current instance of Builder
+     */
+    public Builder addService(String name, String... baseUrls) {
+      return addService(LoadBalancer.newBuilder(name, baseUrls));
+    }
+
+    /**
+     * [Optional] Register a logical service with several endpoints, tuning its load balancing.
+     * See `addService(String, String...)`
+     *
+     * @param service The builder of the load balancer of the service
+     * @return Current instance of Builder
+     */
+    public Builder addService(LoadBalancer.Builder service) {
+      this.services.add(service);
+      return this;
+    }
+
+    /**
+     * [Optional] Guard every host with a circuit breaker built from the given template. While a
+     * breaker is open, requests to its host fail right away with a CircuitBreakerOpenException.
+     * Failures are errors, timeouts and 5xx statuses. Disabled by default.
+     *
+     * @param circuitBreaker The template of breakers
+     * @return Current instance of Builder
+     */
+    public Builder setCircuitBreaker(CircuitBreaker.Builder circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    /**
+     * [Optional] Limit the concurrency of requests to every host adaptively: the limit grows while
+     * latencies stay flat and backs off when they rise or when requests fail. Requests over the
+     * limit are queued; once `maxPendingRequests` are queued, further ones fail right away with a
+     * RejectedExecutionException instead of timing out. Limits never exceed the (per-host) max
+     * connections. Disabled by default.
+     *
+     * @param initialLimit The initial limit per host
+     * @param maxPendingRequests The maximum number of queued requests per host
+     * @return Current instance of Builder
+     */
+    public Builder setAdaptiveConcurrency(int initialLimit, int maxPendingRequests) {
+      this.adaptiveConcurrency = true;
+      this.initialConcurrencyLimit = initialLimit;
+      this.maxPendingRequests = maxPendingRequests;
+      return this;
+    }
+
     /**
      * [Optional] Set request timeout. Default is 1000ms
      *
@@ -128,6 +572,79 @@ public abstract class Requests {
       return this;
     }
 
+    /**
+     * [Optional] Set the executor used to complete futures and run callbacks. By default, a fixed
+     * pool of `ioThreads` threads is used.
+     *
+     * @param callbackExecutor The executor
+     * @return Current instance of Builder
+     */
+    public Builder setCallbackExecutor(Executor callbackExecutor) {
+      this.callbackExecutor = callbackExecutor;
+      this.callbackOnIoThread = false;
+      return this;
+    }
+
+    /**
+     * [Optional] Complete futures and run callbacks directly on I/O threads, saving a thread hop
+     * per request. Callbacks (including stages chained on futures) must never block.
+     *
+     * @return Current instance of Builder
+     */
+    public Builder setCallbackOnIoThread() {
+      this.callbackExecutor = null;
+      this.callbackOnIoThread = true;
+      return this;
+    }
+
+    /**
+     * [Optional] Aggregate per-phase latencies into per-host, per-method histograms, readable with
+     * `Requests.latencies()`. Default is false.
+     *
+     * @param enabled Whether to enable histograms
+     * @return Current instance of Builder
+     */
+    public Builder setLatencyHistograms(boolean enabled) {
+      this.latencyHistograms = enabled;
+      return this;
+    }
+
+    /**
+     * [Optional] Count requests, in-flight requests, errors and timeouts per host and method,
+     * readable with `Requests.counters()`. Default is false.
+     *
+     * @param enabled Whether to enable metrics
+     * @return Current instance of Builder
+     */
+    public Builder setMetrics(boolean enabled) {
+      this.metrics = enabled;
+      return this;
+    }
+
+    /**
+     * [Optional] Expose metrics and connection pool stats through JMX under
+     * `com.bigsonata.requests:type=Requests,name={name}`. Implies `setMetrics(true)`.
+     *
+     * @param name Name of the MBean
+     * @return Current instance of Builder
+     */
+    public Builder setJmxName(String name) {
+      this.jmxName = name;
+      this.metrics = true;
+      return this;
+    }
+
+    /**
+     * [Optional] Add a listener notified about every request
+     *
+     * @param listener The listener
+     * @return Current instance of Builder
+     */
+    public Builder addListener(RequestListener listener) {
+      this.listeners.add(listener);
+      return this;
+    }
+
     /**
      * [Optional] Set default headers to send with every requests
      *
@@ -144,11 +661,96 @@ public abstract class Requests {
   /** Dispose allocated resources */
   protected abstract void dispose();
 
+  /** Dispose allocated resources. The instance must not be used afterwards */
+  @Override
+  public void close() {
+    dispose();
+  }
+
   protected static void onException(Logger logger, Exception e) {
     logger.error("Failed to consume request. Reason: {}", e.getMessage());
     logger.error("Stacktrace: {}", ExceptionUtils.getStackTrace(e));
   }
 
+  protected void initializeJmx() throws Exception {
+    if (builder.jmxName == null) {
+      return;
+    }
+    jmxName = new ObjectName("com.bigsonata.requests:type=Requests,name=" + builder.jmxName);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new Monitor(), jmxName);
+  }
+
+  protected void disposeJmx() {
+    if (jmxName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+    } catch (Exception e) {
+      // Already unregistered
+    }
+    jmxName = null;
+  }
+
+  /** Counters read zeros if metrics are disabled, e.g. by `setMetrics(false)` after the name */
+  private class Monitor implements RequestsMXBean {
+    private final RequestCounters none = new RequestCounters();
+
+    private RequestCounters.Snapshot total() {
+      return (counters != null ? counters : none).total();
+    }
+
+    @Override
+    public long getInFlight() {
+      return total().getInFlight();
+    }
+
+    @Override
+    public long getAwaitingConnection() {
+      return total().getAwaitingConnection();
+    }
+
+    @Override
+    public long getRequests() {
+      return total().getRequests();
+    }
+
+    @Override
+    public long getFailures() {
+      return total().getFailures();
+    }
+
+    @Override
+    public long getTimeouts() {
+      return total().getTimeouts();
+    }
+
+    @Override
+    public long getPoolExhausted() {
+      return total().getPoolExhausted();
+    }
+
+    @Override
+    public long getTotalConnections() {
+      return connectionPoolStats().getTotalConnections();
+    }
+
+    @Override
+    public long getActiveConnections() {
+      return connectionPoolStats().getActiveConnections();
+    }
+
+    @Override
+    public long getIdleConnections() {
+      return connectionPoolStats().getIdleConnections();
+    }
+
+    @Override
+    public List<RequestCounters.Snapshot> getCounters() {
+      return counters();
+    }
+  }
+
   protected void initializeShutdownHook() {
     Runtime.getRuntime()
         .addShutdownHook(
@@ -164,7 +766,146 @@ public abstract class Requests {
    * @param httpRequest The request
    * @return The future
    */
-  public abstract CompletableFuture<HttpResponse> process(HttpRequest httpRequest);
+  public CompletableFuture<HttpResponse> process(HttpRequest httpRequest) {
+    CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+    process(httpRequest, result::complete);
+    return result;
+  }
+
+  /**
+   * Execute a request and wait for its response. The response is handed from the I/O thread
+   * straight to the waiting thread, skipping the callback executor. On JDK 21+, calling it from
+   * virtual threads (e.g. run by `VirtualThreads.newThreadPerTaskExecutor`) only parks the virtual
+   * thread, so that many concurrent calls don't need as many platform threads.
+   *
+   * @param httpRequest The request
+   * @return The response. Failures are reported by `HttpResponse.reason`, like with `exec()`
+   * @throws InterruptedException If the waiting thread is interrupted
+   */
+  public HttpResponse send(HttpRequest httpRequest) throws InterruptedException {
+    httpRequest.blocking = true;
+    CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+    process(httpRequest, result::complete);
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      return new HttpResponse(httpRequest, e); // unreachable: callbacks never fail the future
+    } finally {
+      httpRequest.blocking = false; // e.g. for later `exec()` of the same request
+    }
+  }
+
+  /**
+   * Open connections to hosts in parallel and return them to the pool, so that the first requests
+   * don't pay for DNS, TCP and TLS setup. Any response (whatever its status) counts as success.
+   * Services (see `Builder.addService`) are warmed up through each of their endpoints.
+   *
+   * @param hosts Base urls of hosts, e.g. `https://api.example.com`, or of services, e.g.
+   *     `http://users`
+   * @param connectionsPerHost The number of connections to open per host
+   * @return A future resolving once all connections are pooled. It fails if a host couldn't be
+   *     reached at all.
+   */
+  public abstract CompletableFuture<Void> warmup(Collection<String> hosts, int connectionsPerHost);
+
+  /**
+   * Get the warmup configured with `Requests.Builder.setWarmup`, e.g. to gate readiness on it
+   *
+   * @return A future resolving once connections are pooled (or immediately if there's no warmup)
+   */
+  public CompletableFuture<Void> warmedUp() {
+    return warmedUp;
+  }
+
+  /**
+   * Process an Http Request and deliver the resulting Http Response to a callback
+   *
+   * @param httpRequest The request
+   * @param callback The callback
+   */
+  public abstract void process(HttpRequest httpRequest, ResponseCallback callback);
+
+  /**
+   * Get how many more requests to the host of a request can be sent right away, e.g. for pipelines
+   * to size their demand
+   *
+   * @param httpRequest The request
+   * @return The number of requests, or `Integer.MAX_VALUE` if the host has no limit of ours
+   */
+  int capacity(HttpRequest httpRequest) {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Send requests from a Reactive Streams publisher, publishing their responses in completion
+   * order. Requests are pulled only when the subscriber asks for responses and fewer than
+   * `maxInFlight` are outstanding, so that backpressure reaches request submission. Pulls are also
+   * bounded by free permits of per-host limits (see `Builder.setMaxConnectionsPerHost`), so that
+   * requests don't pile up in their queues. Failures are published as responses with
+   * `isSuccess == false`. The publisher supports a single subscriber. On JDK 9+, see
+   * `FlowAdapters` for `java.util.concurrent.Flow` interop.
+   *
+   * @param requests The requests
+   * @param maxInFlight The maximum number of outstanding requests (sent, or with a response not
+   *     yet delivered)
+   * @return A publisher of responses
+   */
+  public Publisher<HttpResponse> pipeline(Publisher<HttpRequest> requests, int maxInFlight) {
+    return new RequestPipeline(this, requests, maxInFlight);
+  }
+
+  /**
+   * Send requests from a Reactive Streams publisher, with as many outstanding requests as there
+   * are connections. See `pipeline(Publisher, int)`
+   *
+   * @param requests The requests
+   * @return A publisher of responses
+   */
+  public Publisher<HttpResponse> pipeline(Publisher<HttpRequest> requests) {
+    int connections =
+        builder.maxConnectionsPerHost > 0 ? builder.maxConnectionsPerHost : builder.maxConnections;
+    return pipeline(requests, connections);
+  }
+
+  /**
+   * Send many requests with bounded concurrency. Requests are pulled lazily from the iterable and
+   * at most `maxInFlight` of them are outstanding (sent but not yet consumed) at any time.
+   * Failures are returned as responses with `isSuccess == false`.
+   *
+   * <p>The returned iterator blocks until the next response completes and must be consumed by a
+   * single thread.
+   *
+   * @param requests The requests
+   * @param maxInFlight The maximum number of outstanding requests
+   * @return Responses, in completion order
+   */
+  public Iterator<HttpResponse> execAll(Iterable<HttpRequest> requests, int maxInFlight) {
+    return new BulkExecution(this, requests.iterator(), Math.max(1, maxInFlight));
+  }
+
+  /**
+   * Process an Http Request and return a future resolving into a streaming Http Response as soon
+   * as the response headers are received
+   *
+   * @param httpRequest The request
+   * @return The future
+   */
+  public abstract CompletableFuture<StreamingHttpResponse> processStreaming(
+      HttpRequest httpRequest);
+
+  /**
+   * Prepare a template of requests, e.g. `prepare(Http.METHOD_GET, "http://api/users/{id}")`.
+   * Stamping requests from it skips the per-request setup which plain requests go through (copying
+   * default headers, validating headers and parsing urls). See `PreparedRequest`
+   *
+   * @param method The Http method
+   * @param urlTemplate An absolute url whose path and query may hold `{name}` placeholders
+   * @return The template
+   * @throws Exception If the template is invalid
+   */
+  public PreparedRequest prepare(String method, String urlTemplate) throws Exception {
+    return new PreparedRequest(this, method, urlTemplate);
+  }
 
   public HttpRequest get(String url) {
     return new HttpRequest.HttpGetRequest(this, url);
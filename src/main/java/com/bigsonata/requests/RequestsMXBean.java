@@ -0,0 +1,35 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.RequestCounters;
+
+import java.util.List;
+
+/**
+ * JMX view of a Requests instance. Registered as `com.bigsonata.requests:type=Requests,name=...`
+ * when `Requests.Builder.setJmxName` is used.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 18:45
+ */
+public interface RequestsMXBean {
+  long getInFlight();
+
+  long getAwaitingConnection();
+
+  long getRequests();
+
+  long getFailures();
+
+  long getTimeouts();
+
+  long getPoolExhausted();
+
+  long getTotalConnections();
+
+  long getActiveConnections();
+
+  long getIdleConnections();
+
+  List<RequestCounters.Snapshot> getCounters();
+}
@@ -0,0 +1,17 @@
+package com.bigsonata.requests;
+
+/**
+ * A callback receiving Http responses. Used by `HttpRequest.exec(ResponseCallback)` to avoid
+ * allocating futures on hot paths.
+ *
+ * <p>Failures are delivered as responses with `isSuccess == false`. Depending on how `Requests`
+ * is configured, callbacks may run on I/O threads and therefore must never block.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 15:30
+ */
+@FunctionalInterface
+public interface ResponseCallback {
+  void onResponse(HttpResponse response);
+}
@@ -0,0 +1,201 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.RetryBudget;
+
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Describes when and how failed requests are retried
+ *
+ * <p>Only idempotent methods (GET, PUT and DELETE by default) with replayable bodies are retried,
+ * on connect errors, on configured status codes and optionally on timeouts. Delays follow
+ * "decorrelated jitter" backoff and honor `Retry-After`. Retries are capped by a retry budget
+ * shared by all requests using the policy.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 23:00
+ */
+public class RetryPolicy {
+  /** A policy which never retries */
+  public static final RetryPolicy NONE = newBuilder().setMaxAttempts(1).build();
+
+  public final int maxAttempts;
+  public final long baseDelay; // ms
+  public final long maxDelay; // ms
+  public final Set<String> methods;
+  public final Set<Integer> statusCodes;
+  public final boolean retryOnTimeouts;
+  public final RetryBudget budget;
+
+  private RetryPolicy(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.baseDelay = builder.baseDelay;
+    this.maxDelay = builder.maxDelay;
+    this.methods = new HashSet<>(builder.methods);
+    this.statusCodes = new HashSet<>(builder.statusCodes);
+    this.retryOnTimeouts = builder.retryOnTimeouts;
+    this.budget = new RetryBudget(builder.budgetRatio, builder.budgetReserve);
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Check whether a request may be retried at all
+   *
+   * @param request The request
+   * @return True if its method is retryable and its body can be sent again
+   */
+  public boolean isRetryable(HttpRequest request) {
+    return maxAttempts > 1
+        && methods.contains(request.method)
+        && request.bodyStream == null
+        && request.bodyProducer == null;
+  }
+
+  /**
+   * Check whether a response calls for another attempt
+   *
+   * @param response The response
+   * @param attempt The attempt which produced it, starting from 1
+   * @return True if the request should be retried (budget permitting)
+   */
+  public boolean shouldRetry(HttpResponse response, int attempt) {
+    if (attempt >= maxAttempts) {
+      return false;
+    }
+    if (response.isSuccess) {
+      return statusCodes.contains(response.statusCode);
+    }
+    Throwable reason = response.reason;
+    while (reason != null) {
+      if (reason instanceof ConnectException) {
+        return true;
+      }
+      if (reason instanceof TimeoutException) {
+        return retryOnTimeouts;
+      }
+      reason = reason.getCause();
+    }
+    return false;
+  }
+
+  /**
+   * Compute the delay before the next attempt
+   *
+   * @param previous The previous delay (in ms), or 0 before the first retry
+   * @param response The response of the failed attempt
+   * @return The delay (in ms)
+   */
+  public long nextDelay(long previous, HttpResponse response) {
+    // Decorrelated jitter: random between the base and three times the previous delay
+    long upper = Math.max(baseDelay, previous * 3);
+    long delay = Math.min(maxDelay, ThreadLocalRandom.current().nextLong(baseDelay, upper + 1));
+    if (response.isSuccess && response.headers != null) {
+      String retryAfter = response.headers.get("Retry-After");
+      if (retryAfter != null) {
+        try {
+          delay = Math.max(delay, Math.min(maxDelay, Long.parseLong(retryAfter.trim()) * 1000));
+        } catch (NumberFormatException e) {
+          // Http dates are not supported
+        }
+      }
+    }
+    return delay;
+  }
+
+  public static class Builder {
+    private int maxAttempts = 3;
+    private long baseDelay = 50; // ms
+    private long maxDelay = 2000; // ms
+    private Set<String> methods =
+        new HashSet<>(Arrays.asList(Http.METHOD_GET, Http.METHOD_PUT, Http.METHOD_DELETE));
+    private Set<Integer> statusCodes = new HashSet<>(Arrays.asList(502, 503, 504));
+    private boolean retryOnTimeouts = false;
+    private double budgetRatio = 0.2;
+    private int budgetReserve = 10;
+
+    public RetryPolicy build() {
+      return new RetryPolicy(this);
+    }
+
+    /**
+     * [Optional] Set the maximum number of attempts, including the first one. Default is 3.
+     *
+     * @param maxAttempts Max attempts
+     * @return Current instance of Builder
+     */
+    public Builder setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the bounds of backoff delays. Default is 50ms to 2000ms
+     *
+     * @param baseDelay The minimum delay (in ms)
+     * @param maxDelay The maximum delay (in ms)
+     * @return Current instance of Builder
+     */
+    public Builder setBackoff(long baseDelay, long maxDelay) {
+      this.baseDelay = baseDelay;
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the methods which may be retried. Default is GET, PUT and DELETE
+     *
+     * @param methods Http methods
+     * @return Current instance of Builder
+     */
+    public Builder setMethods(String... methods) {
+      this.methods = new HashSet<>(Arrays.asList(methods));
+      return this;
+    }
+
+    /**
+     * [Optional] Set the status codes which trigger a retry. Default is 502, 503 and 504
+     *
+     * @param statusCodes Status codes
+     * @return Current instance of Builder
+     */
+    public Builder setStatusCodes(Integer... statusCodes) {
+      this.statusCodes = new HashSet<>(Arrays.asList(statusCodes));
+      return this;
+    }
+
+    /**
+     * [Optional] Retry requests which timed out. As they may have reached the server, this is
+     * disabled by default.
+     *
+     * @param retryOnTimeouts Whether to retry on timeouts
+     * @return Current instance of Builder
+     */
+    public Builder setRetryOnTimeouts(boolean retryOnTimeouts) {
+      this.retryOnTimeouts = retryOnTimeouts;
+      return this;
+    }
+
+    /**
+     * [Optional] Cap retries to a fraction of requests. Default is 20% of requests, with a reserve
+     * of 10 retries
+     *
+     * @param ratio Retries allowed per request
+     * @param reserve Retries allowed up-front, also the maximum the budget accumulates
+     * @return Current instance of Builder
+     */
+    public Builder setBudget(double ratio, int reserve) {
+      this.budgetRatio = ratio;
+      this.budgetReserve = reserve;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.Latency;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class represents Http responses whose bodies are streamed instead of being buffered.
+ *
+ * <p>The response is available as soon as the status line and headers are received. The body is
+ * then published chunk by chunk through `body()`. Reading from the socket is paused whenever the
+ * subscriber has no outstanding demand, so a slow consumer never causes the body to pile up in
+ * memory.
+ *
+ * <p>NOTE: The body must be subscribed to (or the subscription cancelled), otherwise the connection
+ * stays busy until the request times out. Chunks are signalled on I/O threads: subscribers must not
+ * block and should use `Subscription.request` to control the pace.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 16:05
+ */
+public class StreamingHttpResponse extends Http {
+  public boolean isSuccess;
+  public Exception reason; // if not success
+  public Latency latency; // time to headers
+  public HttpRequest request;
+  private int statusCode;
+  private HttpHeaders headers = EmptyHttpHeaders.INSTANCE;
+  private Publisher<ByteBuffer> body;
+
+  public StreamingHttpResponse(
+      HttpRequest request,
+      int statusCode,
+      HttpHeaders headers,
+      Publisher<HttpResponseBodyPart> bodyParts) {
+    this.request = request;
+    this.isSuccess = true;
+    this.statusCode = statusCode;
+    if (headers != null) {
+      this.headers = headers;
+    }
+    this.body = new BodyPublisher(bodyParts);
+  }
+
+  public StreamingHttpResponse(HttpRequest request, Exception reason) {
+    this.request = request;
+    this.isSuccess = false;
+    this.reason = reason;
+  }
+
+  public String header(String key) throws Exception {
+    if (!isSuccess) {
+      throw new Exception("Invalid response");
+    }
+    return headers.get(key);
+  }
+
+  public int statusCode() throws Exception {
+    if (!isSuccess) {
+      throw new Exception("Invalid response");
+    }
+    return statusCode;
+  }
+
+  public String headerContentType() throws Exception {
+    return header(HEADER_CONTENT_TYPE);
+  }
+
+  /**
+   * The body as a stream of chunks. Only a single subscriber is supported.
+   *
+   * @return The publisher
+   * @throws Exception If the response is not successful
+   */
+  public Publisher<ByteBuffer> body() throws Exception {
+    if (!isSuccess) {
+      throw new Exception("Invalid response");
+    }
+    return body;
+  }
+
+  /** Adapts AHC body parts into ByteBuffers, passing demand and cancellation straight through */
+  private static class BodyPublisher implements Publisher<ByteBuffer> {
+    private final Publisher<HttpResponseBodyPart> bodyParts;
+
+    BodyPublisher(Publisher<HttpResponseBodyPart> bodyParts) {
+      this.bodyParts = bodyParts;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+      bodyParts.subscribe(
+          new Subscriber<HttpResponseBodyPart>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+              subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(HttpResponseBodyPart part) {
+              subscriber.onNext(part.getBodyByteBuffer());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+              subscriber.onError(t);
+            }
+
+            @Override
+            public void onComplete() {
+              subscriber.onComplete();
+            }
+          });
+    }
+  }
+}
@@ -0,0 +1,395 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.CircuitBreaker;
+import com.bigsonata.requests.common.Latency;
+import com.bigsonata.requests.common.LoadBalancer;
+import com.bigsonata.requests.common.HostLimiter;
+import com.bigsonata.requests.common.RequestCounters;
+import io.netty.channel.Channel;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.handler.ProgressAsyncHandler;
+import org.asynchttpclient.netty.request.NettyRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Base of our AHC handlers. Records `System.nanoTime()` timestamps from AHC lifecycle callbacks
+ * and turns them into a per-phase `Latency` breakdown. Also feeds counters and listeners.
+ *
+ * <p>Subclasses must call `statusReceived()` once the status line arrives, then either
+ * `completed()` once the response is done or `failed()` if it fails.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 17:40
+ */
+abstract class TimedAsyncHandler<T> implements ProgressAsyncHandler<T> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TimedAsyncHandler.class);
+
+  protected final HttpRequest httpRequest;
+  protected final Request request;
+  protected final Latency latency;
+  private final Requests requests;
+  private final String host; // null if neither histograms nor counters are enabled
+  private final RequestCounters.Counters counters; // null if disabled
+  private volatile boolean connected = false;
+  private int statusCode;
+  private boolean statusReceived = false; // guarded by this
+  private volatile boolean cancelled = false;
+  private Future<?> future = null; // guarded by this
+  private long startedAt = System.nanoTime();
+  private long startedAtMillis = System.currentTimeMillis();
+  private HostLimiter limiter = null; // holding one of its permits until completion, if any
+  private CircuitBreaker breaker = null; // reporting the outcome to it, if any
+  private long breakerPermit;
+  private LoadBalancer balancer = null; // reporting the outcome to it, if any
+  private LoadBalancer.Endpoint endpoint;
+  private long dnsStartedAt;
+  private long connectStartedAt;
+  private long tlsStartedAt;
+  private long sendStartedAt; // request sent on a ready connection
+  private long writtenAt;
+  private boolean written = false;
+  private long statusAt;
+
+  TimedAsyncHandler(HttpRequest httpRequest, Request request) {
+    this.httpRequest = httpRequest;
+    this.request = request;
+    this.requests = httpRequest.requests;
+    this.latency = new Latency(startedAtMillis - httpRequest.timeStamp, 0);
+    this.latency.nanos(Latency.Phase.QUEUE, startedAt - httpRequest.nanoTimeStamp);
+    if (requests.latencyStats != null || requests.counters != null) {
+      host = request.getUri().getHost() + ":" + request.getUri().getExplicitPort();
+    } else {
+      host = null;
+    }
+    if (requests.counters != null) {
+      counters = requests.counters.of(host, httpRequest.method);
+      counters.onStart();
+    } else {
+      counters = null;
+    }
+    for (RequestListener listener : requests.listeners) {
+      try {
+        listener.onStart(httpRequest);
+      } catch (Exception e) {
+        Requests.onException(LOGGER, e);
+      }
+    }
+  }
+
+  /**
+   * Mark the request as admitted by a per-host limiter. Time spent waiting is accounted as
+   * queueing.
+   *
+   * @param limiter The limiter to release on completion
+   */
+  void admitted(HostLimiter limiter) {
+    this.limiter = limiter;
+    long now = System.nanoTime();
+    add(Latency.Phase.QUEUE, now - startedAt);
+    latency.internal += System.currentTimeMillis() - startedAtMillis;
+    startedAt = now;
+    startedAtMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Mark the request as let through by a circuit breaker
+   *
+   * @param breaker The breaker to report the outcome to
+   * @param permit The permit returned by the breaker
+   */
+  void guardedBy(CircuitBreaker breaker, long permit) {
+    this.breaker = breaker;
+    this.breakerPermit = permit;
+  }
+
+  /**
+   * Mark the request as sent to an endpoint picked by a load balancer
+   *
+   * @param balancer The balancer to report the outcome to
+   * @param endpoint The endpoint
+   */
+  void balancedBy(LoadBalancer balancer, LoadBalancer.Endpoint endpoint) {
+    this.balancer = balancer;
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * Give the permits of the circuit breaker, the load balancer and the limiter back, without an
+   * outcome: the request failed locally (e.g. rejected or past its deadline) and says nothing about
+   * the host
+   */
+  void unguard() {
+    if (limiter != null) {
+      HostLimiter released = limiter;
+      limiter = null;
+      released.release();
+    }
+    if (breaker != null) {
+      breaker.onIgnored(breakerPermit);
+      breaker = null;
+    }
+    if (balancer != null) {
+      balancer.onCancelled(endpoint);
+      balancer = null;
+    }
+  }
+
+  private void report(boolean failed) {
+    if (balancer != null) {
+      LoadBalancer reported = balancer;
+      balancer = null;
+      reported.onComplete(endpoint, latency.nanos(Latency.Phase.TOTAL), failed);
+    }
+    if (breaker != null) {
+      CircuitBreaker reported = breaker;
+      breaker = null;
+      reported.onResult(
+          breakerPermit, failed, latency.nanos(Latency.Phase.TOTAL), System.currentTimeMillis());
+    }
+  }
+
+  private void releasePermit(boolean dropped) {
+    if (limiter != null) {
+      HostLimiter released = limiter;
+      limiter = null;
+      released.release(latency.nanos(Latency.Phase.TOTAL), dropped);
+    }
+  }
+
+  private void connected() {
+    if (!connected) {
+      connected = true;
+      if (counters != null) {
+        counters.onConnection();
+      }
+    }
+  }
+
+  private void add(Latency.Phase phase, long nanos) {
+    latency.nanos(phase, latency.nanos(phase) + nanos);
+  }
+
+  @Override
+  public void onHostnameResolutionAttempt(String name) {
+    dnsStartedAt = System.nanoTime();
+  }
+
+  @Override
+  public void onHostnameResolutionSuccess(String name, List<InetSocketAddress> addresses) {
+    add(Latency.Phase.DNS, System.nanoTime() - dnsStartedAt);
+  }
+
+  @Override
+  public void onHostnameResolutionFailure(String name, Throwable cause) {
+    add(Latency.Phase.DNS, System.nanoTime() - dnsStartedAt);
+  }
+
+  @Override
+  public void onTcpConnectAttempt(InetSocketAddress remoteAddress) {
+    connectStartedAt = System.nanoTime();
+  }
+
+  @Override
+  public void onTcpConnectSuccess(InetSocketAddress remoteAddress, Channel connection) {
+    connected();
+    sendStartedAt = System.nanoTime();
+    add(Latency.Phase.CONNECT, sendStartedAt - connectStartedAt);
+  }
+
+  @Override
+  public void onTcpConnectFailure(InetSocketAddress remoteAddress, Throwable cause) {
+    add(Latency.Phase.CONNECT, System.nanoTime() - connectStartedAt);
+  }
+
+  @Override
+  public void onTlsHandshakeAttempt() {
+    tlsStartedAt = System.nanoTime();
+  }
+
+  @Override
+  public void onTlsHandshakeSuccess() {
+    sendStartedAt = System.nanoTime();
+    add(Latency.Phase.TLS, sendStartedAt - tlsStartedAt);
+  }
+
+  @Override
+  public void onTlsHandshakeFailure(Throwable cause) {
+    add(Latency.Phase.TLS, System.nanoTime() - tlsStartedAt);
+  }
+
+  @Override
+  public void onConnectionPooled(Channel connection) {
+    connected();
+  }
+
+  // On new connections, this is invoked before connecting: connect/TLS success move the mark
+  @Override
+  public void onRequestSend(NettyRequest request) {
+    sendStartedAt = System.nanoTime();
+    written = false;
+  }
+
+  @Override
+  public State onHeadersWritten() {
+    markWritten();
+    return State.CONTINUE;
+  }
+
+  @Override
+  public State onContentWritten() {
+    markWritten();
+    return State.CONTINUE;
+  }
+
+  @Override
+  public State onContentWriteProgress(long amount, long current, long total) {
+    return State.CONTINUE;
+  }
+
+  private void markWritten() {
+    writtenAt = System.nanoTime();
+    written = true;
+    latency.nanos(Latency.Phase.WRITE, writtenAt - sendStartedAt);
+  }
+
+  /**
+   * Keep the future of the request so that it can be cancelled
+   *
+   * @param future The future
+   */
+  synchronized void sent(Future<?> future) {
+    this.future = future;
+    if (cancelled && !statusReceived) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Cancel the request. Before the response starts, the request is cancelled right away. After
+   * that, subclasses abort it on their next callback (see `isCancelled()`), on the I/O thread of
+   * the request, so that its connection is never closed under another request. Aborted
+   * connections are closed, not returned to the pool.
+   */
+  synchronized void cancel() {
+    cancelled = true;
+    if (future != null && !statusReceived) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Abort the request if it isn't connected yet, e.g. on a connect timeout
+   *
+   * @param reason The reason of the failure
+   */
+  void abortUnlessConnected(Exception reason) {
+    Future<?> aborted;
+    synchronized (this) {
+      if (connected || statusReceived || !(future instanceof ListenableFuture)) {
+        return;
+      }
+      aborted = future;
+    }
+    ((ListenableFuture<?>) aborted).abort(reason);
+  }
+
+  boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Mark the arrival of the status line
+   *
+   * @param statusCode The status code
+   */
+  protected void statusReceived(int statusCode) {
+    synchronized (this) {
+      statusReceived = true;
+    }
+    this.statusCode = statusCode;
+    statusAt = System.nanoTime();
+    latency.nanos(Latency.Phase.TTFB, statusAt - (written ? writtenAt : sendStartedAt));
+    latency.network = System.currentTimeMillis() - startedAtMillis;
+  }
+
+  /**
+   * Mark the completion of the response and record its latency
+   *
+   * @return The latency breakdown
+   */
+  protected Latency completed() {
+    long now = System.nanoTime();
+    latency.nanos(Latency.Phase.BODY, now - statusAt);
+    latency.nanos(Latency.Phase.TOTAL, now - startedAt);
+    latency.network = System.currentTimeMillis() - startedAtMillis;
+    if (cancelled) {
+      // e.g. a losing hedge aborted after its status: its latency is partial
+      return abandoned();
+    }
+    // Overload statuses count as drops, so that adaptive limits back off
+    releasePermit(statusCode == 429 || statusCode == 503 || statusCode == 504);
+    report(statusCode >= 500);
+    if (requests.latencyStats != null) {
+      requests.latencyStats.record(host, httpRequest.method, latency);
+    }
+    if (counters != null) {
+      counters.onResponse(statusCode);
+    }
+    for (RequestListener listener : requests.listeners) {
+      try {
+        listener.onResponse(httpRequest, statusCode, latency);
+      } catch (Exception e) {
+        Requests.onException(LOGGER, e);
+      }
+    }
+    return latency;
+  }
+
+  /**
+   * Mark the failure of the request
+   *
+   * @param reason The failure
+   * @return The (partial) latency breakdown
+   */
+  protected Latency failed(Exception reason) {
+    latency.nanos(Latency.Phase.TOTAL, System.nanoTime() - startedAt);
+    latency.network = System.currentTimeMillis() - startedAtMillis;
+    if (cancelled) {
+      return abandoned();
+    }
+    releasePermit(true);
+    report(true);
+    if (counters != null) {
+      counters.onFailure(reason, connected);
+    }
+    for (RequestListener listener : requests.listeners) {
+      try {
+        listener.onFailure(httpRequest, reason, latency);
+      } catch (Exception e) {
+        Requests.onException(LOGGER, e);
+      }
+    }
+    return latency;
+  }
+
+  /**
+   * Wrap up a cancelled request (e.g. a losing hedge), which says nothing about the host: its
+   * latency isn't recorded, and it counts neither as a response nor as a failure
+   *
+   * @return The (partial) latency breakdown
+   */
+  private Latency abandoned() {
+    unguard();
+    if (counters != null) {
+      counters.onCancelled(connected);
+    }
+    return latency;
+  }
+}
@@ -0,0 +1,71 @@
+package com.bigsonata.requests.common;
+
+/**
+ * An adaptive concurrency limit combining a latency gradient with multiplicative decrease
+ *
+ * <p>Each round-trip time is compared with a long-term average. While they stay within
+ * `TOLERANCE` of each other, the limit grows by a small queue allowance; as they rise, the
+ * gradient (`TOLERANCE * longRtt / rtt`) pulls the limit down proportionally. Dropped requests
+ * (errors, timeouts, overload statuses) cut the limit multiplicatively, AIMD-style. Updates are
+ * smoothed so that a single outlier can't swing the limit.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 22:10
+ */
+public class AdaptiveLimit {
+  private static final double TOLERANCE = 1.5;
+  private static final double MIN_GRADIENT = 0.5;
+  private static final double BACKOFF_RATIO = 0.9;
+  private static final double SMOOTHING = 0.2;
+  private static final double LONG_RTT_ALPHA = 2.0 / (600 + 1); // EWMA over ~600 samples
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private double longRtt = -1; // ns
+
+  public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  /**
+   * Update the limit with the outcome of a request
+   *
+   * @param rtt The round-trip time (in ns)
+   * @param inFlight The number of requests in flight when it completed
+   * @param dropped Whether the request failed or was rejected by an overloaded server
+   * @return The new limit
+   */
+  public synchronized int update(long rtt, int inFlight, boolean dropped) {
+    if (dropped) {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+      return (int) limit;
+    }
+    if (longRtt < 0) {
+      longRtt = rtt;
+    } else {
+      longRtt += (rtt - longRtt) * LONG_RTT_ALPHA;
+      if (longRtt > 2 * rtt) {
+        // Latencies dropped for good (e.g. the backend recovered): catch up faster
+        longRtt *= 0.95;
+      }
+    }
+    if (inFlight * 2 < limit) {
+      // The limit isn't used: there's nothing to learn about it
+      return (int) limit;
+    }
+    double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * longRtt / rtt));
+    double queueSize = Math.sqrt(limit);
+    double newLimit = limit * gradient + queueSize;
+    limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    return (int) limit;
+  }
+}
@@ -0,0 +1,243 @@
+package com.bigsonata.requests.common;
+
+/**
+ * A circuit breaker over a sliding window of the latest calls
+ *
+ * <p>While CLOSED, calls flow and their outcomes fill the window. Once it holds enough calls and
+ * either the failure rate or the slow-call rate reaches its threshold, the breaker turns OPEN and
+ * rejects calls right away. After the open duration, it turns HALF_OPEN and lets a few probes
+ * through: if they fare well it closes again, otherwise it re-opens.
+ *
+ * <p>Every permit carries the generation of the breaker, so that outcomes of calls started before
+ * a transition (e.g. still in flight when the breaker opened) are ignored.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 23:45
+ */
+public class CircuitBreaker {
+  /** The permit returned when a call is rejected */
+  public static final long REJECTED = -1;
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int windowSize;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final double slowCallRateThreshold;
+  private final long slowCallDuration; // ns
+  private final long openDuration; // ms
+  private final int halfOpenCalls;
+
+  private final boolean[] failures;
+  private final boolean[] slowCalls;
+  private int next = 0;
+  private int calls = 0;
+  private int failureCount = 0;
+  private int slowCount = 0;
+  private State state = State.CLOSED;
+  private long generation = 0;
+  private long openedAt;
+  private int probes = 0; // probes let through while half-open
+
+  private CircuitBreaker(Builder builder) {
+    this.windowSize = builder.windowSize;
+    this.minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+    this.failureRateThreshold = builder.failureRateThreshold;
+    this.slowCallRateThreshold = builder.slowCallRateThreshold;
+    this.slowCallDuration = builder.slowCallDuration * 1000000;
+    this.openDuration = builder.openDuration;
+    this.halfOpenCalls = builder.halfOpenCalls;
+    this.failures = new boolean[windowSize];
+    this.slowCalls = new boolean[windowSize];
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Ask for a permit to make a call
+   *
+   * @param now The current time (in ms)
+   * @return A permit to pass to `onResult()` or `onIgnored()`, or `REJECTED`
+   */
+  public synchronized long tryAcquire(long now) {
+    switch (state) {
+      case OPEN:
+        if (now - openedAt < openDuration) {
+          return REJECTED;
+        }
+        transition(State.HALF_OPEN);
+        return tryProbe();
+      case HALF_OPEN:
+        return tryProbe();
+      default:
+        return generation;
+    }
+  }
+
+  /** @return A permit for one of the probes allowed while half open, or `REJECTED` */
+  private long tryProbe() {
+    if (probes >= halfOpenCalls) {
+      return REJECTED;
+    }
+    probes++;
+    return generation;
+  }
+
+  /**
+   * Record the outcome of a call
+   *
+   * @param permit The permit of the call
+   * @param failed Whether the call failed
+   * @param nanos The duration of the call (in ns)
+   * @param now The current time (in ms)
+   */
+  public synchronized void onResult(long permit, boolean failed, long nanos, long now) {
+    if (permit != generation) {
+      return;
+    }
+    record(failed, nanos >= slowCallDuration);
+    if (state == State.HALF_OPEN) {
+      if (calls < halfOpenCalls) {
+        return;
+      }
+      if (isUnhealthy()) {
+        open(now);
+      } else {
+        transition(State.CLOSED);
+      }
+    } else if (calls >= minimumCalls && isUnhealthy()) {
+      open(now);
+    }
+  }
+
+  /**
+   * Give a permit back without an outcome, e.g. when the call was cancelled
+   *
+   * @param permit The permit of the call
+   */
+  public synchronized void onIgnored(long permit) {
+    if (permit == generation && state == State.HALF_OPEN) {
+      probes--;
+    }
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  private void record(boolean failed, boolean slow) {
+    if (calls == windowSize) {
+      failureCount -= failures[next] ? 1 : 0;
+      slowCount -= slowCalls[next] ? 1 : 0;
+    } else {
+      calls++;
+    }
+    failures[next] = failed;
+    slowCalls[next] = slow;
+    failureCount += failed ? 1 : 0;
+    slowCount += slow ? 1 : 0;
+    next = (next + 1) % windowSize;
+  }
+
+  private boolean isUnhealthy() {
+    return failureCount >= failureRateThreshold * calls
+        || slowCount >= slowCallRateThreshold * calls;
+  }
+
+  private void open(long now) {
+    transition(State.OPEN);
+    openedAt = now;
+  }
+
+  private void transition(State state) {
+    this.state = state;
+    generation++;
+    probes = 0;
+    next = 0;
+    calls = 0;
+    failureCount = 0;
+    slowCount = 0;
+  }
+
+  public static class Builder {
+    private int windowSize = 100;
+    private int minimumCalls = 20;
+    private double failureRateThreshold = 0.5;
+    private double slowCallRateThreshold = 1.0;
+    private long slowCallDuration = 5000; // ms
+    private long openDuration = 10000; // ms
+    private int halfOpenCalls = 5;
+
+    public CircuitBreaker build() {
+      return new CircuitBreaker(this);
+    }
+
+    /**
+     * [Optional] Set the number of latest calls the rates are computed over, and how many calls
+     * are needed before the breaker may open. Default is 100 and 20
+     *
+     * @param windowSize Calls in the window
+     * @param minimumCalls Minimum calls
+     * @return Current instance of Builder
+     */
+    public Builder setWindow(int windowSize, int minimumCalls) {
+      this.windowSize = windowSize;
+      this.minimumCalls = minimumCalls;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the failure rate opening the breaker. Default is 0.5
+     *
+     * @param failureRateThreshold A rate between 0 and 1
+     * @return Current instance of Builder
+     */
+    public Builder setFailureRateThreshold(double failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the rate of slow calls opening the breaker. Default is 1.0 for calls slower
+     * than 5000ms
+     *
+     * @param slowCallRateThreshold A rate between 0 and 1
+     * @param slowCallDuration The duration from which a call is slow (in ms)
+     * @return Current instance of Builder
+     */
+    public Builder setSlowCallRateThreshold(double slowCallRateThreshold, long slowCallDuration) {
+      this.slowCallRateThreshold = slowCallRateThreshold;
+      this.slowCallDuration = slowCallDuration;
+      return this;
+    }
+
+    /**
+     * [Optional] Set how long the breaker stays open before probing. Default is 10000ms
+     *
+     * @param openDuration The duration (in ms)
+     * @return Current instance of Builder
+     */
+    public Builder setOpenDuration(long openDuration) {
+      this.openDuration = openDuration;
+      return this;
+    }
+
+    /**
+     * [Optional] Set the number of probes let through while half-open. Default is 5
+     *
+     * @param halfOpenCalls Number of probes
+     * @return Current instance of Builder
+     */
+    public Builder setHalfOpenCalls(int halfOpenCalls) {
+      this.halfOpenCalls = halfOpenCalls;
+      return this;
+    }
+  }
+}
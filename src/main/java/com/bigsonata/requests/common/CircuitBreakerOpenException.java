@@ -0,0 +1,20 @@
+package com.bigsonata.requests.common;
+
+/**
+ * Thrown (as the reason of a failed response) when a request is rejected by an open circuit
+ * breaker, without being sent
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 23:50
+ */
+public class CircuitBreakerOpenException extends Exception {
+  private static final long serialVersionUID = 4105325128738520071L;
+
+  public final String host;
+
+  public CircuitBreakerOpenException(String host) {
+    super("Circuit breaker of " + host + " is open");
+    this.host = host;
+  }
+}
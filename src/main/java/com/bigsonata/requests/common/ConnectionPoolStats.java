@@ -0,0 +1,58 @@
+package com.bigsonata.requests.common;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A point-in-time view of a connection pool
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 18:35
+ */
+public class ConnectionPoolStats {
+  public static final ConnectionPoolStats EMPTY =
+      new ConnectionPoolStats(0, 0, Collections.emptyMap());
+
+  private final long activeConnections;
+  private final long idleConnections;
+  private final Map<String, long[]> hosts; // host -> [active, idle]
+
+  public ConnectionPoolStats(
+      long activeConnections, long idleConnections, Map<String, long[]> hosts) {
+    this.activeConnections = activeConnections;
+    this.idleConnections = idleConnections;
+    this.hosts = hosts;
+  }
+
+  public long getTotalConnections() {
+    return activeConnections + idleConnections;
+  }
+
+  public long getActiveConnections() {
+    return activeConnections;
+  }
+
+  public long getIdleConnections() {
+    return idleConnections;
+  }
+
+  public long activeConnections(String host) {
+    long[] stats = hosts.get(host);
+    return stats == null ? 0 : stats[0];
+  }
+
+  public long idleConnections(String host) {
+    long[] stats = hosts.get(host);
+    return stats == null ? 0 : stats[1];
+  }
+
+  public Iterable<String> hosts() {
+    return hosts.keySet();
+  }
+
+  @Override
+  public String toString() {
+    return "{active: " + activeConnections + ", idle: " + idleConnections + "}";
+  }
+}
@@ -0,0 +1,88 @@
+package com.bigsonata.requests.common;
+
+/**
+ * Limits the concurrency of requests to a host, with either a fixed or an adaptive limit.
+ * Requests over the limit wait in a queue; once the queue is full, they are rejected right away.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 22:25
+ */
+public class HostLimiter {
+  private final PermitQueue permits;
+  private final AdaptiveLimit adaptiveLimit; // null for fixed limits
+  private final int maxPending; // negative means unbounded
+
+  private HostLimiter(int limit, AdaptiveLimit adaptiveLimit, int maxPending) {
+    this.permits = new PermitQueue(limit);
+    this.adaptiveLimit = adaptiveLimit;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * Create a limiter with a fixed limit and an unbounded queue
+   *
+   * @param limit The limit
+   * @return The limiter
+   */
+  public static HostLimiter fixed(int limit) {
+    return new HostLimiter(limit, null, -1);
+  }
+
+  /**
+   * Create a limiter with an adaptive limit
+   *
+   * @param adaptiveLimit The limit
+   * @param maxPending The maximum number of queued requests
+   * @return The limiter
+   */
+  public static HostLimiter adaptive(AdaptiveLimit adaptiveLimit, int maxPending) {
+    return new HostLimiter(adaptiveLimit.limit(), adaptiveLimit, maxPending);
+  }
+
+  /**
+   * Run a task once the limit allows it. The task must eventually call `release()`
+   *
+   * @param task The task
+   * @return False if the task was rejected because the queue is full
+   */
+  public boolean submit(Runnable task) {
+    if (maxPending >= 0
+        && permits.inUse() >= permits.limit()
+        && permits.pending() >= maxPending) {
+      return false;
+    }
+    permits.submit(task);
+    return true;
+  }
+
+  /**
+   * Release a permit
+   *
+   * @param rtt The round-trip time of the request (in ns)
+   * @param dropped Whether the request failed or was rejected by an overloaded server
+   */
+  public void release(long rtt, boolean dropped) {
+    if (adaptiveLimit != null) {
+      permits.limit(adaptiveLimit.update(rtt, permits.inUse(), dropped));
+    }
+    permits.release();
+  }
+
+  /** Release a permit without a sample for the adaptive limit, e.g. for requests never sent */
+  public void release() {
+    permits.release();
+  }
+
+  public int limit() {
+    return permits.limit();
+  }
+
+  public int inUse() {
+    return permits.inUse();
+  }
+
+  public int pending() {
+    return permits.pending();
+  }
+}
@@ -1,23 +1,81 @@
 package com.bigsonata.requests.common;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * A class to represent latencies
  *
+ * <p>`internal` and `network` are coarse, millisecond figures. A nanosecond breakdown per phase is
+ * available through `nanos(Phase)`; phases which didn't happen (e.g. DNS and connect on a pooled
+ * connection) are 0, and not `isMeasured(Phase)`.
+ *
  * @author: Andy Le (@anhldbk)
  * @date: 8/19/18
  * @time: 12:10
  */
 public class Latency {
+  public enum Phase {
+    /** From the creation of the request until it's handed over to the network layer */
+    QUEUE,
+    /** Host name resolution */
+    DNS,
+    /** TCP connection establishment */
+    CONNECT,
+    /** TLS handshake */
+    TLS,
+    /** Writing the request (headers and body) */
+    WRITE,
+    /** From the request being written until the status line is received */
+    TTFB,
+    /** From the status line until the body is completely received */
+    BODY,
+    /** From the request being handed over to the network layer until completion */
+    TOTAL
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
   public long internal;
   public long network;
+  private final long[] nanos = new long[PHASES.length];
+  private int measured = 0; // a bit per phase set with `nanos(Phase, long)`
 
   public Latency(long internal, long network) {
     this.internal = internal;
     this.network = network;
   }
 
+  public long nanos(Phase phase) {
+    return nanos[phase.ordinal()];
+  }
+
+  public Latency nanos(Phase phase, long value) {
+    nanos[phase.ordinal()] = value;
+    measured |= 1 << phase.ordinal();
+    return this;
+  }
+
+  /**
+   * @param phase The phase
+   * @return Whether the phase happened and was timed, as opposed to being 0 because it didn't
+   */
+  public boolean isMeasured(Phase phase) {
+    return (measured & (1 << phase.ordinal())) != 0;
+  }
+
   @Override
   public String toString() {
-    return "{internal: " + internal + ", network: " + network + "}";
+    StringBuilder sb = new StringBuilder();
+    sb.append("{internal: ").append(internal).append(", network: ").append(network);
+    sb.append(", phases(us): {");
+    for (Phase phase : PHASES) {
+      if (phase.ordinal() > 0) {
+        sb.append(", ");
+      }
+      sb.append(phase.name().toLowerCase())
+          .append(": ")
+          .append(TimeUnit.NANOSECONDS.toMicros(nanos[phase.ordinal()]));
+    }
+    return sb.append("}}").toString();
   }
 }
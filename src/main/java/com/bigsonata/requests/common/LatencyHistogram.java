@@ -0,0 +1,156 @@
+package com.bigsonata.requests.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of nanosecond latencies with HDR-style log-linear buckets
+ *
+ * <p>Each power of two is split into 32 linear sub-buckets, so recorded values are kept with a
+ * relative error below ~3%. Values up to 2^40ns (~18 minutes) are tracked; larger values are
+ * clamped. Recording never blocks or allocates.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 17:10
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+  private static final int BUCKETS = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + subBucket;
+  }
+
+  /** The value in the middle of a bucket */
+  static long valueOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long lowerBound = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+    return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) / 2;
+  }
+
+  /**
+   * Record a latency
+   *
+   * @param nanos The latency in nanoseconds. Negative values are ignored
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      return;
+    }
+    long value = Math.min(nanos, MAX_VALUE);
+    counts.incrementAndGet(indexOf(value));
+    sum.add(value);
+    long current;
+    while (value > (current = max.get())) {
+      if (max.compareAndSet(current, value)) {
+        break;
+      }
+    }
+  }
+
+  /** Take a consistent-enough copy of the histogram; concurrent records may or may not be seen */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+    return new Snapshot(copy, count, sum.sum(), max.get());
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    sum.reset();
+    max.set(0);
+  }
+
+  /** An immutable view of a histogram */
+  public static class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    private Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long count() {
+      return count;
+    }
+
+    /** Maximum value in nanoseconds */
+    public long max() {
+      return max;
+    }
+
+    /** Mean value in nanoseconds */
+    public double mean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Value at a given percentile
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The value in nanoseconds, or 0 if nothing is recorded
+     */
+    public long percentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count);
+      rank = Math.max(rank, 1);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(valueOf(i), max);
+        }
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "{count: "
+          + count
+          + ", mean(us): "
+          + TimeUnit.NANOSECONDS.toMicros((long) mean())
+          + ", p50(us): "
+          + TimeUnit.NANOSECONDS.toMicros(percentile(50))
+          + ", p99(us): "
+          + TimeUnit.NANOSECONDS.toMicros(percentile(99))
+          + ", p999(us): "
+          + TimeUnit.NANOSECONDS.toMicros(percentile(99.9))
+          + ", max(us): "
+          + TimeUnit.NANOSECONDS.toMicros(max)
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.bigsonata.requests.common;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host, per-method latency histograms for every phase of a request
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 17:25
+ */
+public class LatencyStats {
+  private static final Latency.Phase[] PHASES = Latency.Phase.values();
+
+  private final Map<String, Map<String, LatencyHistogram[]>> histograms =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Record the phases of a completed request. Phases which didn't happen (e.g. DNS and connect on a
+   * pooled connection) aren't recorded, so that they don't drag percentiles down to 0.
+   *
+   * @param host The host (and port)
+   * @param method The Http method
+   * @param latency The latency breakdown
+   */
+  public void record(String host, String method, Latency latency) {
+    LatencyHistogram[] phases =
+        histograms
+            .computeIfAbsent(host, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(method, key -> newPhases());
+    for (Latency.Phase phase : PHASES) {
+      if (latency.isMeasured(phase)) {
+        phases[phase.ordinal()].record(latency.nanos(phase));
+      }
+    }
+  }
+
+  private static LatencyHistogram[] newPhases() {
+    LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+    for (int i = 0; i < phases.length; i++) {
+      phases[i] = new LatencyHistogram();
+    }
+    return phases;
+  }
+
+  public List<Snapshot> snapshot() {
+    List<Snapshot> result = new ArrayList<>();
+    for (Map.Entry<String, Map<String, LatencyHistogram[]>> host : histograms.entrySet()) {
+      for (Map.Entry<String, LatencyHistogram[]> method : host.getValue().entrySet()) {
+        EnumMap<Latency.Phase, LatencyHistogram.Snapshot> phases =
+            new EnumMap<>(Latency.Phase.class);
+        for (Latency.Phase phase : PHASES) {
+          phases.put(phase, method.getValue()[phase.ordinal()].snapshot());
+        }
+        result.add(new Snapshot(host.getKey(), method.getKey(), phases));
+      }
+    }
+    return result;
+  }
+
+  public void reset() {
+    histograms.clear();
+  }
+
+  /** Latency histograms of a (host, method) pair */
+  public static class Snapshot {
+    public final String host;
+    public final String method;
+    public final Map<Latency.Phase, LatencyHistogram.Snapshot> phases;
+
+    Snapshot(String host, String method, Map<Latency.Phase, LatencyHistogram.Snapshot> phases) {
+      this.host = host;
+      this.method = method;
+      this.phases = phases;
+    }
+
+    public LatencyHistogram.Snapshot phase(Latency.Phase phase) {
+      return phases.get(phase);
+    }
+
+    @Override
+    public String toString() {
+      return "{host: " + host + ", method: " + method + ", phases: " + phases + "}";
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package com.bigsonata.requests.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balances requests to a logical service across its endpoints (replicas)
+ *
+ * <p>Endpoints are picked with the "power of two choices": two random endpoints are compared and
+ * the one with the lower cost wins, where the cost is its latency EWMA times its requests in
+ * flight. Latency estimates decay while an endpoint is idle, so that it gets probed again.
+ *
+ * <p>Outliers are ejected for a while: endpoints failing many times in a row, or much slower than
+ * the median endpoint. Ejections last longer for repeat offenders, and never exceed a share of the
+ * endpoints.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 00:10
+ */
+public class LoadBalancer {
+  private static final double SMOOTHING = 0.2;
+  private static final double DECAY = 10000000000.0; // ns, time for idle estimates to fade by 1/e
+  private static final int MIN_SAMPLES = 10; // before an endpoint may be ejected for slowness
+  private static final int MAX_EJECTION_FACTOR = 10;
+
+  public final String name;
+  private final Endpoint[] endpoints;
+  private final int consecutiveFailures;
+  private final double slowFactor;
+  private final long ejectionTime;
+  private final int maxEjected;
+
+  private LoadBalancer(Builder builder) {
+    this.name = builder.name;
+    this.endpoints = new Endpoint[builder.baseUrls.size()];
+    for (int i = 0; i < endpoints.length; i++) {
+      endpoints[i] = new Endpoint(builder.baseUrls.get(i));
+    }
+    this.consecutiveFailures = builder.consecutiveFailures;
+    this.slowFactor = builder.slowFactor;
+    this.ejectionTime = builder.ejectionTime;
+    this.maxEjected = (int) (endpoints.length * builder.maxEjectedRatio);
+  }
+
+  /**
+   * Create a builder
+   *
+   * @param name The logical name of the service, used as the host of its urls
+   * @param baseUrls Base urls of its endpoints, e.g. `http://10.0.0.1:8080/api`
+   * @return The builder
+   */
+  public static Builder newBuilder(String name, String... baseUrls) {
+    return new Builder(name, Arrays.asList(baseUrls));
+  }
+
+  public List<Endpoint> endpoints() {
+    return Collections.unmodifiableList(Arrays.asList(endpoints));
+  }
+
+  /**
+   * Pick an endpoint for a request. Callers must report the outcome with `onComplete()` or
+   * `onCancelled()`
+   *
+   * @return The endpoint, marked as having one more request in flight
+   */
+  public Endpoint pick() {
+    long now = System.nanoTime();
+    Endpoint picked;
+    if (endpoints.length == 1) {
+      picked = endpoints[0];
+    } else {
+      List<Endpoint> available = new ArrayList<>(endpoints.length);
+      for (Endpoint endpoint : endpoints) {
+        if (!endpoint.isEjected(now)) {
+          available.add(endpoint);
+        }
+      }
+      if (available.isEmpty()) {
+        available.addAll(Arrays.asList(endpoints));
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int size = available.size();
+      Endpoint first = available.get(random.nextInt(size));
+      picked = first;
+      if (size > 1) {
+        int index = random.nextInt(size - 1);
+        Endpoint second = available.get(index >= available.indexOf(first) ? index + 1 : index);
+        if (second.cost(now) < first.cost(now)) {
+          picked = second;
+        }
+      }
+    }
+    picked.inFlight.incrementAndGet();
+    return picked;
+  }
+
+  /**
+   * Report the outcome of a request
+   *
+   * @param endpoint The endpoint which served it
+   * @param nanos The latency (in ns)
+   * @param failed Whether the request failed
+   */
+  public void onComplete(Endpoint endpoint, long nanos, boolean failed) {
+    endpoint.inFlight.decrementAndGet();
+    long now = System.nanoTime();
+    boolean outlier;
+    synchronized (endpoint) {
+      if (failed) {
+        endpoint.failures++;
+      } else {
+        endpoint.failures = 0;
+      }
+      endpoint.record(nanos, now);
+      outlier = endpoint.failures >= consecutiveFailures;
+    }
+    if (!outlier && slowFactor > 0 && endpoint.samples >= MIN_SAMPLES) {
+      outlier = endpoint.latency > slowFactor * medianLatency();
+    }
+    if (outlier) {
+      eject(endpoint, now);
+    }
+  }
+
+  /**
+   * Report a request which was cancelled, e.g. a losing hedge
+   *
+   * @param endpoint The endpoint which was serving it
+   */
+  public void onCancelled(Endpoint endpoint) {
+    endpoint.inFlight.decrementAndGet();
+  }
+
+  private double medianLatency() {
+    double[] latencies = new double[endpoints.length];
+    for (int i = 0; i < endpoints.length; i++) {
+      latencies[i] = endpoints[i].latency;
+    }
+    Arrays.sort(latencies);
+    return latencies[latencies.length / 2];
+  }
+
+  private synchronized void eject(Endpoint endpoint, long now) {
+    if (endpoint.isEjected(now)) {
+      return;
+    }
+    int ejected = 0;
+    for (Endpoint other : endpoints) {
+      ejected += other.isEjected(now) ? 1 : 0;
+    }
+    if (ejected >= maxEjected) {
+      return;
+    }
+    endpoint.ejections = Math.min(MAX_EJECTION_FACTOR, endpoint.ejections + 1);
+    endpoint.ejectedUntil = now + ejectionTime * 1000000 * endpoint.ejections;
+    synchronized (endpoint) {
+      // Start afresh once back
+      endpoint.failures = 0;
+      endpoint.samples = 0;
+    }
+  }
+
+  public static class Endpoint {
+    public final String baseUrl;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double latency = 0; // ns, EWMA
+    private volatile long updatedAt = 0; // ns
+    private volatile long ejectedUntil = 0; // ns
+    private int ejections = 0; // guarded by the balancer
+    private int failures = 0; // consecutive, guarded by this
+    private volatile int samples = 0;
+
+    Endpoint(String baseUrl) {
+      this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * Resolve a url of the service against this endpoint
+     *
+     * @param path The path of the url
+     * @param query The query of the url, or null
+     * @return The resolved url
+     */
+    public String url(String path, String query) {
+      StringBuilder url = new StringBuilder(baseUrl);
+      if (path != null && !path.isEmpty() && path.charAt(0) != '/') {
+        url.append('/');
+      }
+      url.append(path == null ? "" : path);
+      if (query != null && !query.isEmpty()) {
+        url.append('?').append(query);
+      }
+      return url.toString();
+    }
+
+    public int inFlight() {
+      return inFlight.get();
+    }
+
+    /** @return The latency EWMA (in ns) */
+    public double latency() {
+      return latency;
+    }
+
+    public boolean isEjected() {
+      return isEjected(System.nanoTime());
+    }
+
+    private boolean isEjected(long now) {
+      long until = ejectedUntil;
+      return until != 0 && until - now > 0;
+    }
+
+    private double cost(long now) {
+      // Idle endpoints see their estimate fade, so that they are probed again
+      double decayed = latency * Math.exp(-(now - updatedAt) / DECAY);
+      return (decayed + 1) * (inFlight.get() + 1);
+    }
+
+    private void record(long nanos, long now) {
+      latency = samples == 0 ? nanos : latency + (nanos - latency) * SMOOTHING;
+      updatedAt = now;
+      samples++;
+    }
+
+    @Override
+    public String toString() {
+      return baseUrl;
+    }
+  }
+
+  public static class Builder {
+    private final String name;
+    private final List<String> baseUrls;
+    private int consecutiveFailures = 5;
+    private double slowFactor = 3;
+    private long ejectionTime = 30000; // ms
+    private double maxEjectedRatio = 0.5;
+
+    private Builder(String name, List<String> baseUrls) {
+      this.name = name;
+      this.baseUrls = baseUrls;
+    }
+
+    public LoadBalancer build() throws Exception {
+      if (baseUrls.isEmpty()) {
+        throw new Exception("Service " + name + " has no endpoints");
+      }
+      return new LoadBalancer(this);
+    }
+
+    /**
+     * [Optional] Configure outlier ejection. Default is ejecting endpoints after 5 consecutive
+     * failures or when 3 times slower than the median endpoint, for 30000ms (times the number of
+     * past ejections), with at most half of the endpoints ejected.
+     *
+     * @param consecutiveFailures Failures in a row ejecting an endpoint
+     * @param slowFactor Latency relative to the median ejecting an endpoint. 0 to disable
+     * @param ejectionTime The base duration of ejections (in ms)
+     * @param maxEjectedRatio The maximum share of ejected endpoints
+     * @return Current instance of Builder
+     */
+    public Builder setOutlierEjection(
+        int consecutiveFailures, double slowFactor, long ejectionTime, double maxEjectedRatio) {
+      this.consecutiveFailures = consecutiveFailures;
+      this.slowFactor = slowFactor;
+      this.ejectionTime = ejectionTime;
+      this.maxEjectedRatio = maxEjectedRatio;
+      return this;
+    }
+  }
+}
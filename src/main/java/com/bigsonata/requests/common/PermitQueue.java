@@ -0,0 +1,97 @@
+package com.bigsonata.requests.common;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A non-blocking semaphore. Tasks submitted while all permits are in use are queued and run (on
+ * the thread releasing a permit) once a permit becomes available. No thread ever blocks.
+ *
+ * <p>The limit may be changed at any time; lowering it takes effect as permits are released.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 19:30
+ */
+public class PermitQueue {
+  private final AtomicInteger inUse = new AtomicInteger();
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+  // Whether the current thread is running pending tasks, so that tasks releasing their permit
+  // synchronously (e.g. failing at once) don't recurse into drain() once per queued task
+  private final ThreadLocal<Boolean> draining = ThreadLocal.withInitial(() -> false);
+  private volatile int limit;
+
+  public PermitQueue(int limit) {
+    this.limit = limit;
+  }
+
+  public int limit() {
+    return limit;
+  }
+
+  public void limit(int limit) {
+    this.limit = limit;
+    drain();
+  }
+
+  public int inUse() {
+    return inUse.get();
+  }
+
+  public int pending() {
+    return pending.size();
+  }
+
+  /**
+   * Run a task once a permit is acquired. The task is responsible for calling `release()`
+   *
+   * @param task The task
+   */
+  public void submit(Runnable task) {
+    if (pending.isEmpty() && tryAcquire()) {
+      task.run();
+      return;
+    }
+    pending.add(task);
+    drain();
+  }
+
+  /** Release a permit, running the next pending task (if any) */
+  public void release() {
+    inUse.decrementAndGet();
+    drain();
+  }
+
+  private boolean tryAcquire() {
+    while (true) {
+      int current = inUse.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inUse.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void drain() {
+    if (draining.get()) {
+      return; // the loop further up the stack picks up the released permit
+    }
+    draining.set(true);
+    try {
+      while (!pending.isEmpty() && tryAcquire()) {
+        Runnable task = pending.poll();
+        if (task == null) {
+          // Raced with another drainer
+          inUse.decrementAndGet();
+          continue;
+        }
+        task.run();
+      }
+    } finally {
+      draining.set(false);
+    }
+  }
+}
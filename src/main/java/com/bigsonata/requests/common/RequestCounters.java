@@ -0,0 +1,258 @@
+package com.bigsonata.requests.common;
+
+import org.asynchttpclient.exception.TooManyConnectionsException;
+import org.asynchttpclient.exception.TooManyConnectionsPerHostException;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-host, per-method request counters and gauges
+ *
+ * <p>Counters are striped `LongAdder`s: updating them is cheap and contention-free, and the cost
+ * of summing is only paid when a snapshot is taken.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 18:20
+ */
+public class RequestCounters {
+  private final Map<String, Map<String, Counters>> counters = new ConcurrentHashMap<>();
+
+  /**
+   * Get counters of a (host, method) pair
+   *
+   * @param host The host (and port)
+   * @param method The Http method
+   * @return The counters
+   */
+  public Counters of(String host, String method) {
+    return counters
+        .computeIfAbsent(host, key -> new ConcurrentHashMap<>())
+        .computeIfAbsent(method, key -> new Counters());
+  }
+
+  public List<Snapshot> snapshot() {
+    List<Snapshot> result = new ArrayList<>();
+    for (Map.Entry<String, Map<String, Counters>> host : counters.entrySet()) {
+      for (Map.Entry<String, Counters> method : host.getValue().entrySet()) {
+        result.add(new Snapshot(host.getKey(), method.getKey(), method.getValue()));
+      }
+    }
+    return result;
+  }
+
+  /** Sum counters of all (host, method) pairs */
+  public Snapshot total() {
+    Snapshot total = new Snapshot("*", "*");
+    for (Snapshot snapshot : snapshot()) {
+      total.add(snapshot);
+    }
+    return total;
+  }
+
+  /** Live counters of a (host, method) pair */
+  public static class Counters {
+    final LongAdder requests = new LongAdder();
+    final LongAdder inFlight = new LongAdder();
+    final LongAdder awaitingConnection = new LongAdder();
+    final LongAdder responses = new LongAdder();
+    final LongAdder clientErrors = new LongAdder(); // 4xx
+    final LongAdder serverErrors = new LongAdder(); // 5xx
+    final LongAdder failures = new LongAdder();
+    final LongAdder timeouts = new LongAdder();
+    final LongAdder connectErrors = new LongAdder();
+    final LongAdder poolExhausted = new LongAdder();
+
+    public void onStart() {
+      requests.increment();
+      inFlight.increment();
+      awaitingConnection.increment();
+    }
+
+    /** A connection (pooled or new) was acquired for the request */
+    public void onConnection() {
+      awaitingConnection.decrement();
+    }
+
+    public void onResponse(int statusCode) {
+      inFlight.decrement();
+      responses.increment();
+      if (statusCode >= 500) {
+        serverErrors.increment();
+      } else if (statusCode >= 400) {
+        clientErrors.increment();
+      }
+    }
+
+    /**
+     * Stop tracking a request which was cancelled (e.g. a losing hedge), without counting it as a
+     * response nor as a failure
+     *
+     * @param connected Whether a connection had been acquired
+     */
+    public void onCancelled(boolean connected) {
+      inFlight.decrement();
+      if (!connected) {
+        awaitingConnection.decrement();
+      }
+    }
+
+    /**
+     * Count a failed request
+     *
+     * @param reason The failure
+     * @param connected Whether a connection had been acquired
+     */
+    public void onFailure(Throwable reason, boolean connected) {
+      inFlight.decrement();
+      if (!connected) {
+        awaitingConnection.decrement();
+      }
+      failures.increment();
+      if (reason instanceof TimeoutException) {
+        timeouts.increment();
+      } else if (reason instanceof ConnectException) {
+        connectErrors.increment();
+      } else if (reason instanceof TooManyConnectionsException
+          || reason instanceof TooManyConnectionsPerHostException) {
+        poolExhausted.increment();
+      }
+    }
+  }
+
+  /** A point-in-time copy of counters. Getters make it usable as a JMX composite type */
+  public static class Snapshot {
+    private final String host;
+    private final String method;
+    private long requests;
+    private long inFlight;
+    private long awaitingConnection;
+    private long responses;
+    private long clientErrors;
+    private long serverErrors;
+    private long failures;
+    private long timeouts;
+    private long connectErrors;
+    private long poolExhausted;
+
+    Snapshot(String host, String method) {
+      this.host = host;
+      this.method = method;
+    }
+
+    Snapshot(String host, String method, Counters counters) {
+      this(host, method);
+      this.requests = counters.requests.sum();
+      this.inFlight = counters.inFlight.sum();
+      this.awaitingConnection = counters.awaitingConnection.sum();
+      this.responses = counters.responses.sum();
+      this.clientErrors = counters.clientErrors.sum();
+      this.serverErrors = counters.serverErrors.sum();
+      this.failures = counters.failures.sum();
+      this.timeouts = counters.timeouts.sum();
+      this.connectErrors = counters.connectErrors.sum();
+      this.poolExhausted = counters.poolExhausted.sum();
+    }
+
+    void add(Snapshot that) {
+      this.requests += that.requests;
+      this.inFlight += that.inFlight;
+      this.awaitingConnection += that.awaitingConnection;
+      this.responses += that.responses;
+      this.clientErrors += that.clientErrors;
+      this.serverErrors += that.serverErrors;
+      this.failures += that.failures;
+      this.timeouts += that.timeouts;
+      this.connectErrors += that.connectErrors;
+      this.poolExhausted += that.poolExhausted;
+    }
+
+    public String getHost() {
+      return host;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public long getRequests() {
+      return requests;
+    }
+
+    public long getInFlight() {
+      return inFlight;
+    }
+
+    /** Requests waiting for a pooled or new connection */
+    public long getAwaitingConnection() {
+      return awaitingConnection;
+    }
+
+    public long getResponses() {
+      return responses;
+    }
+
+    /** Responses with a 4xx status */
+    public long getClientErrors() {
+      return clientErrors;
+    }
+
+    /** Responses with a 5xx status */
+    public long getServerErrors() {
+      return serverErrors;
+    }
+
+    /** Requests which failed without a response */
+    public long getFailures() {
+      return failures;
+    }
+
+    public long getTimeouts() {
+      return timeouts;
+    }
+
+    public long getConnectErrors() {
+      return connectErrors;
+    }
+
+    /** Requests rejected because the connection limit was reached */
+    public long getPoolExhausted() {
+      return poolExhausted;
+    }
+
+    @Override
+    public String toString() {
+      return "{host: "
+          + host
+          + ", method: "
+          + method
+          + ", requests: "
+          + requests
+          + ", inFlight: "
+          + inFlight
+          + ", awaitingConnection: "
+          + awaitingConnection
+          + ", responses: "
+          + responses
+          + ", 4xx: "
+          + clientErrors
+          + ", 5xx: "
+          + serverErrors
+          + ", failures: "
+          + failures
+          + ", timeouts: "
+          + timeouts
+          + ", connectErrors: "
+          + connectErrors
+          + ", poolExhausted: "
+          + poolExhausted
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.bigsonata.requests.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket capping retries (or hedges) to a fraction of traffic. Every request deposits
+ * `ratio` tokens and every retry withdraws a whole one, so that retries can't multiply load during
+ * outages.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 22:50
+ */
+public class RetryBudget {
+  private static final long SCALE = 1000; // tokens are counted in thousandths
+
+  private final AtomicLong tokens;
+  private final long deposit;
+  private final long maxTokens;
+
+  /**
+   * Constructor
+   *
+   * @param ratio Retries allowed per request, e.g. 0.2 for 20% of traffic
+   * @param reserve Retries allowed up-front (e.g. right after startup), which is also the maximum
+   *     number of tokens the bucket accumulates
+   */
+  public RetryBudget(double ratio, int reserve) {
+    this.deposit = (long) (ratio * SCALE);
+    this.maxTokens = Math.max(1, reserve) * SCALE;
+    this.tokens = new AtomicLong(reserve * SCALE);
+  }
+
+  /** Account for a request */
+  public void deposit() {
+    tokens.accumulateAndGet(deposit, (current, x) -> Math.min(maxTokens, current + x));
+  }
+
+  /**
+   * Try to spend a token for a retry
+   *
+   * @return True if the retry is allowed
+   */
+  public boolean tryWithdraw() {
+    while (true) {
+      long current = tokens.get();
+      if (current < SCALE) {
+        return false;
+      }
+      if (tokens.compareAndSet(current, current - SCALE)) {
+        return true;
+      }
+    }
+  }
+
+  /** @return The number of retries currently allowed */
+  public long available() {
+    return tokens.get() / SCALE;
+  }
+}
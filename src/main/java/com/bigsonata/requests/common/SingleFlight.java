@@ -0,0 +1,94 @@
+package com.bigsonata.requests.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller runs the call, later callers
+ * arriving while it's in flight simply wait for its result.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 21:20
+ */
+public class SingleFlight<T> {
+  private final Map<String, Flight<T>> flights = new ConcurrentHashMap<>();
+
+  /**
+   * Run a call unless an identical one is already in flight
+   *
+   * @param key The key identifying identical calls
+   * @param call Starts the call, which must eventually pass its result to the given consumer once
+   * @param consumer Receives the result
+   * @param failure Turns an exception thrown by `call` into the result of the flight
+   * @return True if a new call was started, false if the caller joined an in-flight one
+   */
+  public boolean execute(
+      String key,
+      Consumer<Consumer<T>> call,
+      Consumer<T> consumer,
+      Function<RuntimeException, T> failure) {
+    while (true) {
+      Flight<T> flight = new Flight<>(consumer);
+      Flight<T> current = flights.putIfAbsent(key, flight);
+      if (current == null) {
+        Consumer<T> done =
+            result -> {
+              flights.remove(key, flight);
+              flight.complete(result);
+            };
+        try {
+          call.accept(done);
+        } catch (RuntimeException e) {
+          // Otherwise the flight would stay in the map, and later callers would wait forever
+          done.accept(failure.apply(e));
+        }
+        return true;
+      }
+      if (current.join(consumer)) {
+        return false;
+      }
+      // It completed but hasn't been removed yet
+      flights.remove(key, current);
+    }
+  }
+
+  /** @return The number of calls in flight */
+  public int size() {
+    return flights.size();
+  }
+
+  private static class Flight<T> {
+    private final List<Consumer<T>> consumers = new ArrayList<>(1);
+    private boolean done = false;
+
+    Flight(Consumer<T> consumer) {
+      consumers.add(consumer);
+    }
+
+    synchronized boolean join(Consumer<T> consumer) {
+      if (done) {
+        return false;
+      }
+      consumers.add(consumer);
+      return true;
+    }
+
+    void complete(T result) {
+      synchronized (this) {
+        if (done) {
+          return; // e.g. the call completed, then threw
+        }
+        done = true;
+      }
+      // No more joiners: safe to iterate without the lock
+      for (Consumer<T> consumer : consumers) {
+        consumer.accept(result);
+      }
+    }
+  }
+}
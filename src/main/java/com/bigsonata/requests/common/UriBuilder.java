@@ -8,9 +8,11 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -26,6 +28,14 @@ public final class UriBuilder {
   private static final Logger LOGGER = LoggerFactory.getLogger(UriBuilder.class);
   private static final Pattern IPV6_STD_PATTERN =
       Pattern.compile("^[0-9a-fA-F]{1,4}(:[0-9a-fA-F]{1,4}){7}$");
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+  // ASCII characters left as they are, per component. Others are percent-encoded as UTF-8
+  private static final boolean[] FORM_SAFE = safe("-_.*"); // as URLEncoder
+  private static final boolean[] PATH_SAFE = safe("-_.~!$&'()*+,;=:@"); // a path segment
+  private static final boolean[] QUERY_SAFE = safe("-_.~!$'()*,;:@/?"); // a query name or value
+  private static final int MAX_BUFFER = 8192; // chars, beyond which buffers aren't kept
+  private static final ThreadLocal<StringBuilder> BUFFERS =
+      ThreadLocal.withInitial(() -> new StringBuilder(256));
 
   private String scheme;
   private String encodedSchemeSpecificPart;
@@ -38,6 +48,7 @@ public final class UriBuilder {
   private String encodedPath;
   private String encodedQuery;
   private List<BasicNameValuePair> queryParams;
+  private String unparsedQuery; // digested, but not parsed into queryParams until needed
   private String query;
   private boolean encode;
   private String fragment;
@@ -147,6 +158,15 @@ public final class UriBuilder {
     return new ArrayList<BasicNameValuePair>();
   }
 
+  /** Parse the digested query into parameters, if it wasn't already */
+  private List<BasicNameValuePair> queryParams() {
+    if (this.unparsedQuery != null) {
+      this.queryParams = parseQuery(this.unparsedQuery);
+      this.unparsedQuery = null;
+    }
+    return this.queryParams;
+  }
+
   /** Builds a {@link URI} instance. */
   public URI build() {
     try {
@@ -157,11 +177,11 @@ public final class UriBuilder {
   }
 
   private static boolean isIPv6Address(final String input) {
-    return IPV6_STD_PATTERN.matcher(input).matches();
+    return input.indexOf(':') >= 0 && IPV6_STD_PATTERN.matcher(input).matches();
   }
 
   public String buildString() {
-    final StringBuilder sb = new StringBuilder();
+    final StringBuilder sb = buffer();
     if (this.scheme != null) {
       sb.append(this.scheme).append(':');
     }
@@ -193,8 +213,9 @@ public final class UriBuilder {
       }
       if (this.encodedQuery != null) {
         sb.append("?").append(this.encodedQuery);
-      } else if (this.queryParams != null && !this.queryParams.isEmpty()) {
-        sb.append("?").append(encodeUrlForm(this.queryParams));
+      } else if (queryParams() != null && !this.queryParams.isEmpty()) {
+        sb.append("?");
+        encodeUrlForm(this.queryParams, sb);
       } else if (this.query != null) {
         sb.append("?").append(encodeUric(this.query));
       }
@@ -204,7 +225,7 @@ public final class UriBuilder {
     } else if (this.fragment != null) {
       sb.append("#").append(encodeUric(this.fragment));
     }
-    return sb.toString();
+    return release(sb);
   }
 
   public UriBuilder digestURI(final URI uri) {
@@ -218,7 +239,9 @@ public final class UriBuilder {
     this.encodedPath = uri.getRawPath();
     this.path = uri.getPath();
     this.encodedQuery = uri.getRawQuery();
-    this.queryParams = parseQuery(uri.getRawQuery());
+    // Most urls are built as they are digested: parse their query only once parameters change
+    this.queryParams = null;
+    this.unparsedQuery = uri.getRawQuery() != null ? uri.getRawQuery() : "";
     this.encodedFragment = uri.getRawFragment();
     this.fragment = uri.getFragment();
     return this;
@@ -231,11 +254,138 @@ public final class UriBuilder {
    * @return the encoded value.
    */
   private static String urlEncode(final String value) {
-    try {
-      return URLEncoder.encode(value, "UTF-8");
-    } catch (final UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
+    return encode(value, FORM_SAFE, true);
+  }
+
+  /**
+   * Percent-encode a path segment, e.g. the value of a path placeholder: anything but unreserved
+   * characters, sub-delimiters, ':' and '@' is encoded.
+   *
+   * @param value the value to encode.
+   * @return the encoded value, which is the value itself when nothing needs escaping.
+   */
+  public static String encodePathSegment(final String value) {
+    return encode(value, PATH_SAFE, false);
+  }
+
+  /**
+   * Percent-encode a query parameter name or value: '&amp;', '=', '+' and '#' are encoded along
+   * with anything but unreserved characters.
+   *
+   * @param value the value to encode.
+   * @return the encoded value, which is the value itself when nothing needs escaping.
+   */
+  public static String encodeQueryParameter(final String value) {
+    return encode(value, QUERY_SAFE, false);
+  }
+
+  private static boolean[] safe(final String punctuation) {
+    final boolean[] safe = new boolean[128];
+    for (char c = 'a'; c <= 'z'; c++) {
+      safe[c] = true;
+      safe[c - 'a' + 'A'] = true;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      safe[c] = true;
+    }
+    for (final char c : punctuation.toCharArray()) {
+      safe[c] = true;
+    }
+    return safe;
+  }
+
+  private static boolean isSafe(final char c, final boolean[] safe) {
+    return c < 128 && safe[c];
+  }
+
+  private static String encode(final String value, final boolean[] safe, final boolean form) {
+    final int length = value.length();
+    int i = 0;
+    while (i < length && isSafe(value.charAt(i), safe)) {
+      i++;
+    }
+    if (i == length) {
+      return value; // ASCII fast path: nothing to escape, nothing to allocate
+    }
+    final StringBuilder sb = new StringBuilder(length + 16).append(value, 0, i);
+    encode(value, i, safe, form, sb);
+    return sb.toString();
+  }
+
+  private static void encode(
+      final CharSequence value,
+      final int start,
+      final boolean[] safe,
+      final boolean form,
+      final StringBuilder sb) {
+    final int length = value.length();
+    int i = start;
+    while (i < length) {
+      final char c = value.charAt(i);
+      if (isSafe(c, safe)) {
+        int end = i + 1;
+        while (end < length && isSafe(value.charAt(end), safe)) {
+          end++;
+        }
+        // Copy runs in bulk: when nothing needs escaping, the value is appended at once
+        if (i == 0 && end == length && value instanceof String) {
+          sb.append((String) value);
+        } else {
+          sb.append(value, i, end);
+        }
+        i = end;
+      } else if (c == ' ' && form) {
+        sb.append('+');
+        i++;
+      } else if (c < 128) {
+        appendEscaped(c, sb);
+        i++;
+      } else {
+        // Encode runs of non-ASCII characters at once, so that surrogate pairs stay together
+        int end = i + 1;
+        while (end < length && value.charAt(end) >= 128) {
+          end++;
+        }
+        for (final byte b :
+            value.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8)) {
+          appendEscaped(b & 0xff, sb);
+        }
+        i = end;
+      }
+    }
+  }
+
+  private static void appendEscaped(final int b, final StringBuilder sb) {
+    sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xf]);
+  }
+
+  /** @return the buffer of this thread to build strings with, unless it's in use */
+  private static StringBuilder buffer() {
+    final StringBuilder sb = BUFFERS.get();
+    // e.g. a value whose toString() builds a url while a template is expanded
+    return sb.length() > 0 ? new StringBuilder(256) : sb;
+  }
+
+  private static String release(final StringBuilder sb) {
+    final String result = sb.toString();
+    sb.setLength(0);
+    if (sb.capacity() > MAX_BUFFER && sb == BUFFERS.get()) {
+      BUFFERS.set(new StringBuilder(256)); // don't pin the memory of an outsized url
     }
+    return result;
+  }
+
+  /**
+   * Compile a url template whose path and query hold `{name}` placeholders, e.g.
+   * `/users/{id}/orders?since={ts}`. Literals must be valid (encoded) url text. Compiled templates
+   * are immutable and thread-safe.
+   *
+   * @param template the template.
+   * @return the compiled template.
+   * @throws IllegalArgumentException if a placeholder isn't closed.
+   */
+  public static Template compile(final String template) {
+    return new Template(template);
   }
 
   private String encodeUserInfo(final String userInfo) {
@@ -246,23 +396,27 @@ public final class UriBuilder {
     return this.encode ? urlEncode(path) : path;
   }
 
-  private String encodeUrlForm(final List<BasicNameValuePair> params) {
-    final StringBuilder result = new StringBuilder();
+  private void encodeUrlForm(final List<BasicNameValuePair> params, final StringBuilder result) {
+    boolean first = true;
     for (final BasicNameValuePair parameter : params) {
-      final String encodedName = this.encode ? urlEncode(parameter.getName()) : parameter.getName();
-      final String encodedValue =
-          this.encode ? urlEncode(parameter.getValue()) : parameter.getValue();
-
-      if (result.length() > 0) {
+      if (!first) {
         result.append("&");
       }
-      result.append(encodedName);
-      if (encodedValue != null) {
+      first = false;
+      appendForm(parameter.getName(), result);
+      if (parameter.getValue() != null) {
         result.append("=");
-        result.append(encodedValue);
+        appendForm(parameter.getValue(), result);
       }
     }
-    return result.toString();
+  }
+
+  private void appendForm(final String value, final StringBuilder result) {
+    if (this.encode) {
+      encode(value, 0, FORM_SAFE, true, result);
+    } else {
+      result.append(value);
+    }
   }
 
   private String encodeUric(final String fragment) {
@@ -331,6 +485,7 @@ public final class UriBuilder {
 
   /** Removes URI query. */
   public UriBuilder removeQuery() {
+    this.unparsedQuery = null;
     this.queryParams = null;
     this.query = null;
     this.encodedQuery = null;
@@ -346,6 +501,7 @@ public final class UriBuilder {
    * will remove custom query if present.
    */
   private UriBuilder setParameters(final List<BasicNameValuePair> nvps) {
+    this.unparsedQuery = null;
     this.queryParams = new ArrayList<BasicNameValuePair>();
     this.queryParams.addAll(nvps);
     this.encodedQuery = null;
@@ -355,6 +511,7 @@ public final class UriBuilder {
   }
 
   private UriBuilder setParameters(final String queryParameters) {
+    this.unparsedQuery = null;
     this.queryParams = new ArrayList<BasicNameValuePair>();
     this.queryParams.addAll(parseQuery(queryParameters));
     this.encodedQuery = null;
@@ -371,7 +528,7 @@ public final class UriBuilder {
    * will remove custom query if present.
    */
   private UriBuilder addParameters(final List<BasicNameValuePair> nvps) {
-    if (this.queryParams == null || this.queryParams.isEmpty()) {
+    if (queryParams() == null || this.queryParams.isEmpty()) {
       this.queryParams = new ArrayList<BasicNameValuePair>();
     }
     this.queryParams.addAll(nvps);
@@ -389,6 +546,7 @@ public final class UriBuilder {
    * will remove custom query if present.
    */
   private UriBuilder setParameters(final BasicNameValuePair... nvps) {
+    this.unparsedQuery = null;
     if (this.queryParams == null) {
       this.queryParams = new ArrayList<BasicNameValuePair>();
     } else {
@@ -411,7 +569,7 @@ public final class UriBuilder {
    * will remove custom query if present.
    */
   public UriBuilder addParameterUnescaped(final String param, final String value) {
-    if (this.queryParams == null) {
+    if (queryParams() == null) {
       this.queryParams = new ArrayList<BasicNameValuePair>();
     }
     this.queryParams.add(new BasicNameValuePair(param, value));
@@ -433,14 +591,8 @@ public final class UriBuilder {
    * will remove custom query if present.
    */
   public UriBuilder setParameterUnescaped(final String param, final String value) {
-
-    String encodeValue = value;
-    try {
-      encodeValue = URLEncoder.encode(value, "UTF-8");
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
-    }
-    if (this.queryParams == null) {
+    final String encodeValue = urlEncode(value);
+    if (queryParams() == null) {
       this.queryParams = new ArrayList<BasicNameValuePair>();
     }
     if (!this.queryParams.isEmpty()) {
@@ -464,6 +616,7 @@ public final class UriBuilder {
 
   /** Clears URI query parameters. */
   public UriBuilder clearParameters() {
+    this.unparsedQuery = null;
     this.queryParams = null;
     this.encodedQuery = null;
     this.encodedSchemeSpecificPart = null;
@@ -478,6 +631,7 @@ public final class UriBuilder {
    * will remove query parameters if present.
    */
   public UriBuilder setCustomQuery(final String query) {
+    this.unparsedQuery = null;
     this.query = query;
     this.encodedQuery = null;
     this.encodedSchemeSpecificPart = null;
@@ -535,7 +689,7 @@ public final class UriBuilder {
   }
 
   public List<BasicNameValuePair> getQueryParams() {
-    if (this.queryParams != null) {
+    if (queryParams() != null) {
       return new ArrayList<BasicNameValuePair>(this.queryParams);
     }
     return new ArrayList<BasicNameValuePair>();
@@ -573,6 +727,8 @@ public final class UriBuilder {
     if (o == null || getClass() != o.getClass()) return false;
 
     final UriBuilder that = (UriBuilder) o;
+    queryParams();
+    that.queryParams();
 
     if (port != that.port) return false;
     if (encode != that.encode) return false;
@@ -604,6 +760,7 @@ public final class UriBuilder {
 
   @Override
   public int hashCode() {
+    queryParams();
     int result = scheme != null ? scheme.hashCode() : 0;
     result =
         31 * result
@@ -624,6 +781,104 @@ public final class UriBuilder {
     return result;
   }
 
+  /** A compiled url template. See {@link UriBuilder#compile(String)} */
+  public static final class Template {
+    private final String template;
+    // The template split at placeholders: literals[0] {names[0]} literals[1] ... literals[n]
+    private final String[] literals;
+    private final String[] names;
+    private final boolean[] inQuery; // whether placeholders are in the query (or fragment)
+    private final int literalLength;
+
+    private Template(final String template) {
+      final List<String> literals = new ArrayList<String>();
+      final List<String> names = new ArrayList<String>();
+      final List<Boolean> inQuery = new ArrayList<Boolean>();
+      boolean query = false;
+      int start = 0;
+      int open;
+      while ((open = template.indexOf('{', start)) >= 0) {
+        final int close = template.indexOf('}', open);
+        if (close < 0) {
+          throw new IllegalArgumentException("Unclosed placeholder in template " + template);
+        }
+        final String literal = template.substring(start, open);
+        query = query || literal.indexOf('?') >= 0 || literal.indexOf('#') >= 0;
+        literals.add(literal);
+        names.add(template.substring(open + 1, close));
+        inQuery.add(query);
+        start = close + 1;
+      }
+      literals.add(template.substring(start));
+
+      this.template = template;
+      this.literals = literals.toArray(new String[0]);
+      this.names = names.toArray(new String[0]);
+      this.inQuery = new boolean[names.size()];
+      int literalLength = 0;
+      for (int i = 0; i < this.literals.length; i++) {
+        literalLength += this.literals[i].length();
+        if (i < this.inQuery.length) {
+          this.inQuery[i] = inQuery.get(i);
+        }
+      }
+      this.literalLength = literalLength;
+    }
+
+    /** @return the names of placeholders, in order. */
+    public List<String> names() {
+      return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /** @return the length of the template without its placeholders. */
+    public int literalLength() {
+      return literalLength;
+    }
+
+    /**
+     * Expand the template into a buffer of this thread, percent-encoding values.
+     *
+     * @param values the values of placeholders, in order.
+     * @return the url.
+     */
+    public String expand(final Object... values) {
+      return release(expand(buffer(), values));
+    }
+
+    /**
+     * Expand the template, percent-encoding values: path values as path segments (so '/' is
+     * encoded), query values as query parameters (so '&amp;', '=' and '+' are).
+     *
+     * @param out the buffer to append the url to.
+     * @param values the values of placeholders, in order.
+     * @return the buffer.
+     * @throws IllegalArgumentException if the number of values doesn't match.
+     */
+    public StringBuilder expand(final StringBuilder out, final Object... values) {
+      if (values.length != names.length) {
+        throw new IllegalArgumentException(
+            "Template " + template + " expects " + names.length + " values");
+      }
+      for (int i = 0; i < names.length; i++) {
+        out.append(literals[i]);
+        final Object value = values[i];
+        if (value instanceof Long || value instanceof Integer) {
+          out.append(((Number) value).longValue()); // digits never need escaping
+        } else {
+          final CharSequence chars =
+              value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+          encode(chars, 0, inQuery[i] ? QUERY_SAFE : PATH_SAFE, false, out);
+        }
+      }
+      return out.append(literals[names.length]);
+    }
+
+    @Override
+    public String toString() {
+      return template;
+    }
+  }
+
   public static class BasicNameValuePair implements Cloneable, Serializable {
     private static final long serialVersionUID = -6437800749411518984L;
 
@@ -0,0 +1,45 @@
+package com.bigsonata.requests.common;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking-style code on virtual threads when the JVM has them (JDK 21+), and on platform
+ * threads otherwise. This is the Java 8 implementation: the multi-release JAR ships another one
+ * under `META-INF/versions/21` (see `src/main/java21`).
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 01:15
+ */
+public final class VirtualThreads {
+  private VirtualThreads() {}
+
+  /** @return True if the JVM supports virtual threads */
+  public static boolean isSupported() {
+    return false;
+  }
+
+  /** @return True if the current thread is a virtual thread */
+  public static boolean isVirtual() {
+    return false;
+  }
+
+  /**
+   * Create an executor running every task on its own thread: a virtual thread on JDK 21+, a
+   * (cached) daemon platform thread otherwise
+   *
+   * @param name The prefix of thread names
+   * @return The executor
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String name) {
+    AtomicInteger counter = new AtomicInteger();
+    return Executors.newCachedThreadPool(
+        task -> {
+          Thread thread = new Thread(task, name + "-" + counter.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+}
@@ -0,0 +1,106 @@
+package com.bigsonata.requests.common.cache;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Parsed `Cache-Control` directives (RFC 7234, section 5.2) we care about, plus header helpers
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 20:10
+ */
+final class CacheControl {
+  static final CacheControl NONE = new CacheControl();
+
+  boolean noStore = false;
+  boolean noCache = false;
+  long maxAge = -1; // seconds
+
+  /**
+   * Parse directives
+   *
+   * @param cacheControl The value of `Cache-Control` (may be null)
+   * @param pragma The value of `Pragma` (may be null), only used without `Cache-Control`
+   * @return The directives
+   */
+  static CacheControl parse(String cacheControl, String pragma) {
+    if (cacheControl == null) {
+      if (pragma != null && pragma.toLowerCase().contains("no-cache")) {
+        CacheControl result = new CacheControl();
+        result.noCache = true;
+        return result;
+      }
+      return NONE;
+    }
+    CacheControl result = new CacheControl();
+    for (String directive : cacheControl.split(",")) {
+      String name = directive;
+      String value = null;
+      int index = directive.indexOf('=');
+      if (index >= 0) {
+        name = directive.substring(0, index);
+        value = directive.substring(index + 1).trim().replace("\"", "");
+      }
+      name = name.trim().toLowerCase();
+      if ("no-store".equals(name)) {
+        result.noStore = true;
+      } else if ("no-cache".equals(name)) {
+        // Conservatively treat `no-cache="field"` as plain `no-cache`
+        result.noCache = true;
+      } else if ("max-age".equals(name) && value != null) {
+        try {
+          result.maxAge = Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+          result.noCache = true; // invalid lifetimes mean stale
+        }
+      }
+    }
+    return result;
+  }
+
+  static CacheControl of(Map<String, String> headers) {
+    return parse(header(headers, "Cache-Control"), header(headers, "Pragma"));
+  }
+
+  /**
+   * Find a header, ignoring the case of its name
+   *
+   * @param headers Headers
+   * @param name The name
+   * @return The value or null
+   */
+  static String header(Map<String, String> headers, String name) {
+    String value = headers.get(name);
+    if (value != null) {
+      return value;
+    }
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      if (header.getKey().equalsIgnoreCase(name)) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Parse an Http date
+   *
+   * @param value The date (may be null)
+   * @return Epoch milliseconds, or -1 if absent or invalid
+   */
+  static long date(String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+          .toInstant()
+          .toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+}
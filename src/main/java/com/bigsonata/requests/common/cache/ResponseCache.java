@@ -0,0 +1,426 @@
+package com.bigsonata.requests.common.cache;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A private, in-memory Http cache following RFC 7234 freshness rules
+ *
+ * <p>Entries are evicted by total body bytes with a segmented LRU: new entries start in a
+ * probationary segment and are promoted to a protected segment (80% of the capacity) when hit
+ * again, so a burst of one-off responses can't flush the hot ones. Bodies larger than the
+ * probationary segment (20% of the capacity) are not cached. Bodies may be kept off-heap.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/18/26
+ * @time: 20:30
+ */
+public class ResponseCache {
+  private static final double PROTECTED_RATIO = 0.8;
+  // Heuristic freshness is a fraction of the time since the last modification (RFC 7234, 4.2.2)
+  private static final double HEURISTIC_RATIO = 0.1;
+  private static final long MAX_HEURISTIC_LIFETIME = 24 * 3600 * 1000L; // ms
+  private static final Set<Integer> CACHEABLE_STATUSES =
+      new HashSet<>(Arrays.asList(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501));
+  // Headers of a 304 which must not replace the stored ones
+  private static final Set<String> KEPT_HEADERS =
+      new HashSet<>(Arrays.asList("content-length", "content-encoding", "transfer-encoding"));
+
+  private final long maxBytes;
+  private final long maxProtectedBytes;
+  private final boolean offHeap;
+  private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+  private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>();
+  private long probationBytes = 0;
+  private long protectedBytes = 0;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Constructor
+   *
+   * @param maxBytes Maximum total size of cached bodies
+   * @param offHeap Whether to keep bodies in direct buffers, outside of the Java heap
+   */
+  public ResponseCache(long maxBytes, boolean offHeap) {
+    this.maxBytes = maxBytes;
+    this.maxProtectedBytes = (long) (maxBytes * PROTECTED_RATIO);
+    this.offHeap = offHeap;
+  }
+
+  /**
+   * Look up a response
+   *
+   * @param key The key (url)
+   * @param requestHeaders Headers of the request, matched against `Vary`
+   * @param now The current time (epoch ms)
+   * @return The entry (fresh or stale), or null if absent or not usable for this request
+   */
+  public Entry get(String key, Map<String, String> requestHeaders, long now) {
+    CacheControl cacheControl = CacheControl.of(requestHeaders);
+    Entry entry = cacheControl.noStore ? null : touch(key);
+    if (entry == null || !entry.matches(requestHeaders)) {
+      misses.increment();
+      return null;
+    }
+    if (entry.isFresh(now, cacheControl)) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return entry;
+  }
+
+  private synchronized Entry touch(String key) {
+    Entry entry = protectedSegment.remove(key);
+    if (entry != null) {
+      protectedSegment.put(key, entry);
+      return entry;
+    }
+    entry = probation.remove(key);
+    if (entry == null) {
+      return null;
+    }
+    probationBytes -= entry.weight;
+    protectedSegment.put(key, entry);
+    protectedBytes += entry.weight;
+    // Demote the least recently used protected entries back to probation
+    Iterator<Entry> iterator = protectedSegment.values().iterator();
+    while (protectedBytes > maxProtectedBytes && iterator.hasNext()) {
+      Entry demoted = iterator.next();
+      if (demoted == entry) {
+        break;
+      }
+      iterator.remove();
+      protectedBytes -= demoted.weight;
+      probation.put(demoted.key, demoted);
+      probationBytes += demoted.weight;
+    }
+    return entry;
+  }
+
+  /**
+   * Store a response if it's cacheable
+   *
+   * @param key The key (url)
+   * @param requestHeaders Headers of the request
+   * @param statusCode Status code of the response
+   * @param headers Headers of the response
+   * @param body Body of the response
+   * @param requestTime When the request was sent (epoch ms)
+   * @param responseTime When the response was received (epoch ms)
+   * @return The stored entry, or null if the response is not cacheable
+   */
+  public Entry put(
+      String key,
+      Map<String, String> requestHeaders,
+      int statusCode,
+      HttpHeaders headers,
+      byte[] body,
+      long requestTime,
+      long responseTime) {
+    if (!CACHEABLE_STATUSES.contains(statusCode)
+        || CacheControl.of(requestHeaders).noStore
+        || body.length > maxBytes - maxProtectedBytes) {
+      return null;
+    }
+    CacheControl cacheControl =
+        CacheControl.parse(headers.get("Cache-Control"), headers.get("Pragma"));
+    if (cacheControl.noStore) {
+      return null;
+    }
+    Map<String, String> vary = vary(headers.get("Vary"), requestHeaders);
+    if (vary == null) {
+      return null;
+    }
+    Entry entry =
+        new Entry(
+            key,
+            statusCode,
+            new DefaultHttpHeaders().add(headers),
+            store(body),
+            body.length,
+            vary,
+            requestTime,
+            responseTime);
+    if (entry.freshnessLifetime <= 0 && entry.etag() == null && entry.lastModified() == null) {
+      return null; // it could never be served nor revalidated
+    }
+    insert(entry);
+    return entry;
+  }
+
+  /**
+   * Refresh a stale entry with the headers of a `304 Not Modified` response
+   *
+   * @param entry The entry
+   * @param headers Headers of the 304 response
+   * @param requestTime When the conditional request was sent (epoch ms)
+   * @param responseTime When the 304 response was received (epoch ms)
+   * @return The refreshed entry
+   */
+  public Entry revalidated(Entry entry, HttpHeaders headers, long requestTime, long responseTime) {
+    revalidations.increment();
+    HttpHeaders merged = new DefaultHttpHeaders().add(entry.headers);
+    for (String name : headers.names()) {
+      if (!KEPT_HEADERS.contains(name.toLowerCase())) {
+        merged.set(name, headers.getAll(name));
+      }
+    }
+    Entry refreshed =
+        new Entry(
+            entry.key,
+            entry.statusCode,
+            merged,
+            entry.body,
+            entry.weight,
+            entry.vary,
+            requestTime,
+            responseTime);
+    replace(entry, refreshed);
+    return refreshed;
+  }
+
+  /**
+   * Remove a response, e.g. after an unsafe request to the same url
+   *
+   * @param key The key (url)
+   */
+  public synchronized void invalidate(String key) {
+    Entry entry = probation.remove(key);
+    if (entry != null) {
+      probationBytes -= entry.weight;
+    }
+    entry = protectedSegment.remove(key);
+    if (entry != null) {
+      protectedBytes -= entry.weight;
+    }
+  }
+
+  public synchronized void clear() {
+    probation.clear();
+    protectedSegment.clear();
+    probationBytes = 0;
+    protectedBytes = 0;
+  }
+
+  private synchronized void insert(Entry entry) {
+    invalidate(entry.key);
+    probation.put(entry.key, entry);
+    probationBytes += entry.weight;
+    while (probationBytes + protectedBytes > maxBytes) {
+      LinkedHashMap<String, Entry> segment = probation.isEmpty() ? protectedSegment : probation;
+      Iterator<Entry> iterator = segment.values().iterator();
+      Entry evicted = iterator.next();
+      iterator.remove();
+      if (segment == probation) {
+        probationBytes -= evicted.weight;
+      } else {
+        protectedBytes -= evicted.weight;
+      }
+      evictions.increment();
+    }
+  }
+
+  private synchronized void replace(Entry current, Entry replacement) {
+    // Keep the position; do nothing if the entry has been evicted or replaced meanwhile
+    if (protectedSegment.get(current.key) == current) {
+      protectedSegment.put(current.key, replacement);
+    } else if (probation.get(current.key) == current) {
+      probation.put(current.key, replacement);
+    }
+  }
+
+  private Object store(byte[] body) {
+    if (!offHeap) {
+      return body;
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+    buffer.put(body).flip();
+    return buffer;
+  }
+
+  /**
+   * Capture the request headers a response varies on
+   *
+   * @return Their values, or null if the response varies on everything (`Vary: *`)
+   */
+  private static Map<String, String> vary(String vary, Map<String, String> requestHeaders) {
+    if (vary == null || vary.trim().isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> result = new HashMap<>();
+    for (String name : vary.split(",")) {
+      name = name.trim().toLowerCase();
+      if ("*".equals(name)) {
+        return null;
+      }
+      result.put(name, CacheControl.header(requestHeaders, name));
+    }
+    return result;
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** Lookups which found no entry or a stale one */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /** Stale entries refreshed by a `304 Not Modified` response */
+  public long revalidations() {
+    return revalidations.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  public synchronized int size() {
+    return probation.size() + protectedSegment.size();
+  }
+
+  /** Total size of cached bodies, in bytes */
+  public synchronized long weight() {
+    return probationBytes + protectedBytes;
+  }
+
+  /** A cached response */
+  public static class Entry {
+    public final String key;
+    public final int statusCode;
+    public final HttpHeaders headers;
+    private final Object body; // byte[] or a direct ByteBuffer
+    private final int weight;
+    private final Map<String, String> vary;
+    private final long responseTime;
+    private final long correctedInitialAge; // ms
+    private final long freshnessLifetime; // ms
+    private final boolean noCache;
+
+    Entry(
+        String key,
+        int statusCode,
+        HttpHeaders headers,
+        Object body,
+        int weight,
+        Map<String, String> vary,
+        long requestTime,
+        long responseTime) {
+      this.key = key;
+      this.statusCode = statusCode;
+      this.headers = headers;
+      this.body = body;
+      this.weight = weight;
+      this.vary = vary;
+      this.responseTime = responseTime;
+
+      // RFC 7234, section 4.2.3
+      long date = CacheControl.date(headers.get("Date"));
+      long apparentAge = date < 0 ? 0 : Math.max(0, responseTime - date);
+      long ageValue = 0;
+      try {
+        String age = headers.get("Age");
+        ageValue = age == null ? 0 : Math.max(0, Long.parseLong(age.trim()) * 1000);
+      } catch (NumberFormatException e) {
+        // Ignore invalid Age
+      }
+      long correctedAgeValue = ageValue + (responseTime - requestTime);
+      this.correctedInitialAge = Math.max(apparentAge, correctedAgeValue);
+
+      // RFC 7234, section 4.2.1
+      CacheControl cacheControl =
+          CacheControl.parse(headers.get("Cache-Control"), headers.get("Pragma"));
+      this.noCache = cacheControl.noCache;
+      if (cacheControl.maxAge >= 0) {
+        this.freshnessLifetime = cacheControl.maxAge * 1000;
+      } else if (headers.contains("Expires")) {
+        long expires = CacheControl.date(headers.get("Expires"));
+        // Invalid dates (e.g. "0") mean already expired
+        this.freshnessLifetime = expires < 0 ? 0 : expires - (date < 0 ? responseTime : date);
+      } else {
+        long lastModified = CacheControl.date(headers.get("Last-Modified"));
+        long since = (date < 0 ? responseTime : date) - lastModified;
+        this.freshnessLifetime =
+            lastModified < 0
+                ? 0
+                : Math.min(MAX_HEURISTIC_LIFETIME, (long) (since * HEURISTIC_RATIO));
+      }
+    }
+
+    public byte[] body() {
+      if (body instanceof byte[]) {
+        return (byte[]) body;
+      }
+      byte[] result = new byte[weight];
+      ((ByteBuffer) body).duplicate().get(result);
+      return result;
+    }
+
+    /**
+     * The current age of the response
+     *
+     * @param now The current time (epoch ms)
+     * @return The age (in ms)
+     */
+    public long age(long now) {
+      return correctedInitialAge + (now - responseTime);
+    }
+
+    /**
+     * Check whether the response can be served without revalidation
+     *
+     * @param now The current time (epoch ms)
+     * @param requestHeaders Headers of the request, which may ask for revalidation
+     * @return True if it's fresh
+     */
+    public boolean isFresh(long now, Map<String, String> requestHeaders) {
+      return isFresh(now, CacheControl.of(requestHeaders));
+    }
+
+    private boolean isFresh(long now, CacheControl request) {
+      if (noCache || request.noCache) {
+        return false;
+      }
+      long age = age(now);
+      if (request.maxAge >= 0 && age > request.maxAge * 1000) {
+        return false;
+      }
+      return age < freshnessLifetime;
+    }
+
+    public String etag() {
+      return headers.get("ETag");
+    }
+
+    public String lastModified() {
+      return headers.get("Last-Modified");
+    }
+
+    boolean matches(Map<String, String> requestHeaders) {
+      for (Map.Entry<String, String> header : vary.entrySet()) {
+        String value = CacheControl.header(requestHeaders, header.getKey());
+        if (value == null ? header.getValue() != null : !value.equals(header.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
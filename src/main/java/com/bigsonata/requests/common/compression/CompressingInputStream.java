@@ -0,0 +1,97 @@
+package com.bigsonata.requests.common.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a stream while it is read, in gzip or zlib (deflate) framing. Only a small window of
+ * the body is held in memory at any time.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 02:20
+ */
+class CompressingInputStream extends InputStream {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final InputStream source;
+  private final boolean gzip;
+  private final Deflater deflater;
+  private final CRC32 crc = new CRC32();
+  private final byte[] input = new byte[BUFFER_SIZE];
+  private final byte[] pending = new byte[ContentCoding.GZIP_HEADER.length];
+  private int pendingOffset = 0;
+  private int pendingLength = 0;
+  private long size = 0;
+  private boolean trailerWritten = false;
+  private boolean closed = false;
+
+  CompressingInputStream(InputStream source, boolean gzip) {
+    this.source = source;
+    this.gzip = gzip;
+    this.deflater = new Deflater(ContentCoding.LEVEL, gzip);
+    if (gzip) {
+      System.arraycopy(ContentCoding.GZIP_HEADER, 0, pending, 0, pending.length);
+      pendingLength = pending.length;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    int read = read(single, 0, 1);
+    return read < 0 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (length == 0) {
+      return 0;
+    }
+    // Framing bytes (gzip header, then trailer) go first
+    if (pendingOffset < pendingLength) {
+      int count = Math.min(length, pendingLength - pendingOffset);
+      System.arraycopy(pending, pendingOffset, buffer, offset, count);
+      pendingOffset += count;
+      return count;
+    }
+    while (!deflater.finished()) {
+      if (deflater.needsInput()) {
+        int read = source.read(input, 0, input.length);
+        if (read < 0) {
+          deflater.finish();
+        } else if (read > 0) {
+          deflater.setInput(input, 0, read);
+          crc.update(input, 0, read);
+          size += read;
+        }
+      }
+      int count = deflater.deflate(buffer, offset, length);
+      if (count > 0) {
+        return count;
+      }
+    }
+    if (gzip && !trailerWritten) {
+      trailerWritten = true;
+      ContentCoding.writeTrailer(pending, 0, crc.getValue(), size);
+      pendingOffset = 0;
+      pendingLength = 8;
+      return read(buffer, offset, length);
+    }
+    return -1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      deflater.end();
+      source.close();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.bigsonata.requests.common.compression;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Content codings which request bodies can be compressed with
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 02:10
+ */
+public enum ContentCoding {
+  /** No compression */
+  IDENTITY("identity"),
+  /** Deflate wrapped in gzip framing (RFC 1952) */
+  GZIP("gzip"),
+  /** Deflate wrapped in zlib framing (RFC 1950) */
+  DEFLATE("deflate");
+
+  static final int LEVEL = 6;
+  static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, -1};
+
+  // Deflaters hold native memory: reuse one per thread rather than allocating one per body
+  private static final ThreadLocal<Deflater> RAW_DEFLATERS =
+      ThreadLocal.withInitial(() -> new Deflater(LEVEL, true));
+  private static final ThreadLocal<Deflater> ZLIB_DEFLATERS =
+      ThreadLocal.withInitial(() -> new Deflater(LEVEL, false));
+
+  /** The value of `Content-Encoding` headers */
+  public final String value;
+
+  ContentCoding(String value) {
+    this.value = value;
+  }
+
+  /**
+   * Compress a body
+   *
+   * @param body The body
+   * @return The compressed body
+   */
+  public byte[] compress(byte[] body) {
+    if (this == IDENTITY) {
+      return body;
+    }
+    Deflater deflater = (this == GZIP ? RAW_DEFLATERS : ZLIB_DEFLATERS).get();
+    deflater.reset();
+    deflater.setInput(body);
+    deflater.finish();
+
+    int header = this == GZIP ? GZIP_HEADER.length : 0;
+    int trailer = this == GZIP ? 8 : 0;
+    // Incompressible data grows by ~0.1%, plus a few bytes of framing
+    byte[] output = new byte[header + body.length + body.length / 1000 + 64 + trailer];
+    System.arraycopy(GZIP_HEADER, 0, output, 0, header);
+    int length = header;
+    while (!deflater.finished()) {
+      if (length == output.length - trailer) {
+        output = Arrays.copyOf(output, output.length * 2);
+      }
+      length += deflater.deflate(output, length, output.length - trailer - length);
+    }
+    if (this == GZIP) {
+      CRC32 crc = new CRC32();
+      crc.update(body, 0, body.length);
+      writeTrailer(output, length, crc.getValue(), body.length);
+      length += trailer;
+    }
+    return length == output.length ? output : Arrays.copyOf(output, length);
+  }
+
+  /**
+   * Compress a body while it is read, without buffering it
+   *
+   * @param body The body
+   * @return A stream of the compressed body
+   */
+  public InputStream compress(InputStream body) {
+    return this == IDENTITY ? body : new CompressingInputStream(body, this == GZIP);
+  }
+
+  static void writeTrailer(byte[] output, int offset, long crc, long size) {
+    for (int i = 0; i < 4; i++) {
+      output[offset + i] = (byte) (crc >> (8 * i));
+      output[offset + 4 + i] = (byte) (size >> (8 * i));
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package com.bigsonata.requests.common.dns;
+
+import io.netty.resolver.NameResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the addresses resolved by another (asynchronous) resolver
+ *
+ * <p>Entries live for a bounded TTL and are refreshed in the background once most of it has
+ * elapsed, so that connection setup never waits for popular hosts. Failures are cached for a
+ * (shorter) negative TTL, so that a failing name can't flood the resolver. Concurrent lookups of a
+ * missing host share a single query.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 00:40
+ */
+public class CachingNameResolver implements NameResolver<InetAddress> {
+  private static final double REFRESH_AHEAD = 0.75; // share of the TTL before refreshing
+
+  private final NameResolver<InetAddress> delegate;
+  private final EventExecutor executor;
+  private final long ttl; // ms
+  private final long negativeTtl; // ms
+  private final int maxEntries;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<String, Future<List<InetAddress>>> lookups = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor
+   *
+   * @param delegate The resolver to query on misses and refreshes
+   * @param executor The executor to create promises (and run listeners) with
+   * @param ttl How long addresses are cached (in ms)
+   * @param negativeTtl How long failures are cached (in ms)
+   * @param maxEntries The maximum number of cached hosts
+   */
+  public CachingNameResolver(
+      NameResolver<InetAddress> delegate,
+      EventExecutor executor,
+      long ttl,
+      long negativeTtl,
+      int maxEntries) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.ttl = ttl;
+    this.negativeTtl = negativeTtl;
+    this.maxEntries = maxEntries;
+  }
+
+  @Override
+  public Future<InetAddress> resolve(String inetHost) {
+    return resolve(inetHost, executor.newPromise());
+  }
+
+  @Override
+  public Future<InetAddress> resolve(String inetHost, Promise<InetAddress> promise) {
+    resolveAll(inetHost)
+        .addListener(
+            (Future<List<InetAddress>> future) -> {
+              if (future.isSuccess()) {
+                promise.trySuccess(future.getNow().get(0));
+              } else {
+                promise.tryFailure(future.cause());
+              }
+            });
+    return promise;
+  }
+
+  @Override
+  public Future<List<InetAddress>> resolveAll(String inetHost) {
+    return resolveAll(inetHost, executor.newPromise());
+  }
+
+  @Override
+  public Future<List<InetAddress>> resolveAll(
+      String inetHost, Promise<List<InetAddress>> promise) {
+    long now = System.currentTimeMillis();
+    Entry entry = entries.get(inetHost);
+    if (entry != null && now < entry.expiresAt) {
+      if (entry.addresses == null) {
+        return promise.setFailure(entry.cause);
+      }
+      if (now >= entry.refreshAt) {
+        lookup(inetHost); // in the background, serving cached addresses meanwhile
+      }
+      return promise.setSuccess(entry.addresses);
+    }
+    lookup(inetHost)
+        .addListener(
+            (Future<List<InetAddress>> future) -> {
+              if (future.isSuccess()) {
+                promise.trySuccess(future.getNow());
+              } else {
+                promise.tryFailure(future.cause());
+              }
+            });
+    return promise;
+  }
+
+  /** Query the delegate, unless a query for the host is already in flight */
+  private Future<List<InetAddress>> lookup(String inetHost) {
+    Future<List<InetAddress>> pending = lookups.get(inetHost);
+    if (pending != null) {
+      return pending;
+    }
+    Promise<List<InetAddress>> promise = executor.newPromise();
+    pending = lookups.putIfAbsent(inetHost, promise);
+    if (pending != null) {
+      return pending;
+    }
+    delegate
+        .resolveAll(inetHost)
+        .addListener(
+            (Future<List<InetAddress>> future) -> {
+              long now = System.currentTimeMillis();
+              if (future.isSuccess() && !future.getNow().isEmpty()) {
+                store(inetHost, new Entry(future.getNow(), null, now + ttl, now));
+                lookups.remove(inetHost);
+                promise.trySuccess(future.getNow());
+                return;
+              }
+              Throwable cause =
+                  future.cause() != null ? future.cause() : new UnknownHostException(inetHost);
+              Entry stale = entries.get(inetHost);
+              if (stale == null || stale.addresses == null || now >= stale.expiresAt) {
+                store(inetHost, new Entry(null, cause, now + negativeTtl, now));
+              } // else: a refresh failed, keep serving addresses until they expire
+              lookups.remove(inetHost);
+              promise.tryFailure(cause);
+            });
+    return promise;
+  }
+
+  private void store(String inetHost, Entry entry) {
+    if (entries.size() >= maxEntries && !entries.containsKey(inetHost)) {
+      long now = System.currentTimeMillis();
+      entries.values().removeIf(cached -> now >= cached.expiresAt);
+      Iterator<String> hosts = entries.keySet().iterator();
+      while (entries.size() >= maxEntries && hosts.hasNext()) {
+        hosts.next();
+        hosts.remove();
+      }
+    }
+    entries.put(inetHost, entry);
+  }
+
+  /** Drop all cached entries */
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  private class Entry {
+    final List<InetAddress> addresses; // null for failures
+    final Throwable cause;
+    final long expiresAt;
+    final long refreshAt;
+
+    Entry(List<InetAddress> addresses, Throwable cause, long expiresAt, long now) {
+      this.addresses = addresses;
+      this.cause = cause;
+      this.expiresAt = expiresAt;
+      this.refreshAt = now + (long) (ttl * REFRESH_AHEAD);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.bigsonata.requests.common.dns;
+
+import io.netty.resolver.InetNameResolver;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves host names from a static map, without any network access (e.g. for tests and
+ * benchmarks). IP literals resolve to themselves and `localhost` to the loopback address. Other
+ * names fail with an UnknownHostException.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 00:55
+ */
+public class StaticNameResolver extends InetNameResolver {
+  private final Map<String, List<InetAddress>> hosts = new ConcurrentHashMap<>();
+
+  public StaticNameResolver() {
+    super(ImmediateEventExecutor.INSTANCE);
+    hosts.put("localhost", Collections.singletonList(InetAddress.getLoopbackAddress()));
+  }
+
+  /**
+   * Map a host name to addresses
+   *
+   * @param host The host name
+   * @param addresses IP addresses, e.g. "127.0.0.1"
+   * @return Current instance of StaticNameResolver
+   * @throws UnknownHostException If an address is not an IP literal
+   */
+  public StaticNameResolver add(String host, String... addresses) throws UnknownHostException {
+    List<InetAddress> resolved = new ArrayList<>(addresses.length);
+    for (String address : addresses) {
+      InetAddress inetAddress = literal(address);
+      if (inetAddress == null) {
+        throw new UnknownHostException(address + " is not an IP address");
+      }
+      resolved.add(inetAddress);
+    }
+    hosts.put(host.toLowerCase(), Collections.unmodifiableList(resolved));
+    return this;
+  }
+
+  @Override
+  protected void doResolve(String inetHost, Promise<InetAddress> promise) {
+    List<InetAddress> addresses = lookup(inetHost);
+    if (addresses == null) {
+      promise.setFailure(new UnknownHostException(inetHost));
+    } else {
+      promise.setSuccess(addresses.get(0));
+    }
+  }
+
+  @Override
+  protected void doResolveAll(String inetHost, Promise<List<InetAddress>> promise) {
+    List<InetAddress> addresses = lookup(inetHost);
+    if (addresses == null) {
+      promise.setFailure(new UnknownHostException(inetHost));
+    } else {
+      promise.setSuccess(addresses);
+    }
+  }
+
+  private List<InetAddress> lookup(String inetHost) {
+    InetAddress address = literal(inetHost);
+    if (address != null) {
+      return Collections.singletonList(address);
+    }
+    return hosts.get(inetHost.toLowerCase());
+  }
+
+  private static InetAddress literal(String host) {
+    byte[] bytes = NetUtil.createByteArrayFromIpAddressString(host);
+    if (bytes == null) {
+      return null;
+    }
+    try {
+      return InetAddress.getByAddress(host, bytes);
+    } catch (UnknownHostException e) {
+      return null; // unreachable: the length of bytes is valid
+    }
+  }
+}
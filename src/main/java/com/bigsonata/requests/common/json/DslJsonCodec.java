@@ -1,22 +1,51 @@
 package com.bigsonata.requests.common.json;
 
 import com.dslplatform.json.DslJson;
+import com.dslplatform.json.JsonReader;
+import com.dslplatform.json.JsonWriter;
 import com.dslplatform.json.runtime.Settings;
 
-import java.io.ByteArrayOutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A JsonCodec based on dsl-json
  *
+ * <p>All classes share a single DslJson runtime. Converters are resolved once per class and cached
+ * in a ClassValue, so lookups involve no hashing of class names. Classes which are not registered
+ * up-front are registered lazily on first use. Writers and readers are reused per thread.
+ *
  * @reference: https://github.com/ngs-doo/dsl-json
  * @author: Andy Le (@anhldbk)
  * @date: 8/19/18
  * @time: 9:40
  */
 public class DslJsonCodec implements JsonCodec {
-  private Map<String, DslJson> codec = new HashMap<>();
+  private static final byte[] EMPTY = new byte[0];
+  private static final int STREAM_BUFFER_SIZE = 4096;
+  // Writers which grew beyond this size are dropped rather than kept alive per thread
+  private static final int MAX_RETAINED_WRITER_SIZE = 64 * 1024;
+
+  private final DslJson<Object> dslJson =
+      new DslJson<>(Settings.withRuntime().allowArrayFormat(true).includeServiceLoader());
+
+  private final ClassValue<Converter> converters =
+      new ClassValue<Converter>() {
+        @Override
+        protected Converter computeValue(Class<?> type) {
+          return new Converter(dslJson.tryFindWriter(type), dslJson.tryFindReader(type));
+        }
+      };
+
+  private final ThreadLocal<JsonWriter> writers = ThreadLocal.withInitial(dslJson::newWriter);
+  // Reads from caller-owned arrays
+  private final ThreadLocal<JsonReader<Object>> bytesReaders =
+      ThreadLocal.withInitial(() -> dslJson.newReader(EMPTY));
+  // Reads from streams into its own buffer
+  private final ThreadLocal<JsonReader<Object>> streamReaders =
+      ThreadLocal.withInitial(() -> dslJson.newReader(new byte[STREAM_BUFFER_SIZE]));
 
   /**
    * Constructor
@@ -53,27 +82,70 @@ public class DslJsonCodec implements JsonCodec {
   }
 
   private <T> DslJsonCodec register(Class<T> prototype) {
-    String className = prototype.getName();
-    final DslJson dslJson =
-        new DslJson<>(Settings.<T>withRuntime().allowArrayFormat(true).includeServiceLoader());
-    codec.put(className, dslJson);
+    // Resolve converters eagerly so that the first request doesn't pay for it
+    converters.get(prototype);
     return this;
   }
 
+  private JsonWriter.WriteObject writerOf(Class<?> prototype) throws Exception {
+    JsonWriter.WriteObject writer = converters.get(prototype).writer;
+    if (writer == null) {
+      throw new Exception("Unable to serialize class: " + prototype.getName());
+    }
+    return writer;
+  }
+
+  private JsonReader.ReadObject readerOf(Class<?> prototype) throws Exception {
+    JsonReader.ReadObject reader = converters.get(prototype).reader;
+    if (reader == null) {
+      throw new Exception("Unable to deserialize class: " + prototype.getName());
+    }
+    return reader;
+  }
+
   @Override
   public <T> String serialize(T input) throws Exception {
-    if (input == null) {
+    return new String(serializeToBytes(input), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public <T> byte[] serializeToBytes(T input) throws Exception {
+    JsonWriter writer = write(input);
+    try {
+      return writer.toByteArray();
+    } finally {
+      release(writer);
+    }
+  }
+
+  @Override
+  public <T> void serialize(T input, OutputStream output) throws Exception {
+    if (output == null) {
       throw new Exception("Invalid input");
     }
-    String className = input.getClass().getName();
-    if (!codec.containsKey(className)) {
-      throw new Exception("Must invoke `register` first for class: " + className);
+    JsonWriter writer = write(input);
+    try {
+      writer.toStream(output);
+    } finally {
+      release(writer);
     }
+  }
 
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    codec.get(className).serialize(input, os);
+  private <T> JsonWriter write(T input) throws Exception {
+    if (input == null) {
+      throw new Exception("Invalid input");
+    }
+    JsonWriter.WriteObject converter = writerOf(input.getClass());
+    JsonWriter writer = writers.get();
+    writer.reset();
+    converter.write(writer, input);
+    return writer;
+  }
 
-    return os.toString();
+  private void release(JsonWriter writer) {
+    if (writer.getByteBuffer().length > MAX_RETAINED_WRITER_SIZE) {
+      writers.remove();
+    }
   }
 
   @Override
@@ -81,11 +153,54 @@ public class DslJsonCodec implements JsonCodec {
     if (input == null) {
       throw new Exception("Invalid input");
     }
-    String className = prototype.getName();
-    if (!codec.containsKey(className)) {
-      throw new Exception("Must invoke `register` first for class: " + className);
+    return deserialize(prototype, input, 0, input.length);
+  }
+
+  @Override
+  public <T> T deserialize(Class<T> prototype, byte[] input, int offset, int length)
+      throws Exception {
+    if (input == null) {
+      throw new Exception("Invalid input");
+    }
+    if (offset != 0) {
+      // dsl-json can't start parsing mid-array; stream the slice instead of copying it
+      return deserialize(prototype, new ByteArrayInputStream(input, offset, length));
+    }
+    JsonReader.ReadObject converter = readerOf(prototype);
+    JsonReader<Object> reader = bytesReaders.get();
+    try {
+      reader.process(input, length);
+      reader.getNextToken();
+      return (T) converter.read(reader);
+    } finally {
+      // Don't keep the caller's array reachable from the thread
+      reader.process(EMPTY, 0);
+    }
+  }
+
+  @Override
+  public <T> T deserialize(Class<T> prototype, InputStream input) throws Exception {
+    if (input == null) {
+      throw new Exception("Invalid input");
+    }
+    JsonReader.ReadObject converter = readerOf(prototype);
+    JsonReader<Object> reader = streamReaders.get();
+    try {
+      reader.process(input);
+      reader.getNextToken();
+      return (T) converter.read(reader);
+    } finally {
+      reader.process(null);
     }
+  }
 
-    return (T) codec.get(className).deserialize(prototype, input, input.length);
+  private static class Converter {
+    final JsonWriter.WriteObject writer;
+    final JsonReader.ReadObject reader;
+
+    Converter(JsonWriter.WriteObject writer, JsonReader.ReadObject reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
   }
 }
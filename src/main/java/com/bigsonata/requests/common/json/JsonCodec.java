@@ -1,8 +1,19 @@
 package com.bigsonata.requests.common.json;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 /**
  * An interface for working with Json
  *
+ * <p>Only `serialize(T)` and `deserialize(Class, byte[])` are mandatory. The byte-oriented methods
+ * fall back to them by default; codecs should override them to skip intermediate Strings and
+ * copies.
+ *
  * @author: Andy Le (@anhldbk)
  * @date: 8/19/18
  * @time: 10:30
@@ -11,4 +22,86 @@ public interface JsonCodec {
   <T> String serialize(T input) throws Exception;
 
   <T> T deserialize(Class<T> prototype, byte[] input) throws Exception;
+
+  /**
+   * Serialize an object instance into UTF-8 encoded Json bytes
+   *
+   * @param input The instance
+   * @param <T> A class
+   * @return Json bytes
+   * @throws Exception Throws exception if there's something wrong
+   */
+  default <T> byte[] serializeToBytes(T input) throws Exception {
+    return serialize(input).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Serialize an object instance as UTF-8 encoded Json into a stream. The stream is not closed.
+   *
+   * @param input The instance
+   * @param output The stream
+   * @param <T> A class
+   * @throws Exception Throws exception if there's something wrong
+   */
+  default <T> void serialize(T input, OutputStream output) throws Exception {
+    output.write(serializeToBytes(input));
+  }
+
+  /**
+   * Deserialize a slice of a byte array into an object instance
+   *
+   * @param prototype A class
+   * @param input Byte array
+   * @param offset Offset of the first byte
+   * @param length Number of bytes
+   * @param <T> A class
+   * @return An object
+   * @throws Exception Throws exception if there's something wrong
+   */
+  default <T> T deserialize(Class<T> prototype, byte[] input, int offset, int length)
+      throws Exception {
+    if (offset == 0 && length == input.length) {
+      return deserialize(prototype, input);
+    }
+    return deserialize(prototype, Arrays.copyOfRange(input, offset, offset + length));
+  }
+
+  /**
+   * Deserialize the remaining bytes of a buffer into an object instance. The buffer's position is
+   * left untouched.
+   *
+   * @param prototype A class
+   * @param input The buffer
+   * @param <T> A class
+   * @return An object
+   * @throws Exception Throws exception if there's something wrong
+   */
+  default <T> T deserialize(Class<T> prototype, ByteBuffer input) throws Exception {
+    if (input.hasArray()) {
+      return deserialize(
+          prototype, input.array(), input.arrayOffset() + input.position(), input.remaining());
+    }
+    byte[] bytes = new byte[input.remaining()];
+    input.duplicate().get(bytes);
+    return deserialize(prototype, bytes);
+  }
+
+  /**
+   * Deserialize a stream of Json into an object instance. The stream is not closed.
+   *
+   * @param prototype A class
+   * @param input The stream
+   * @param <T> A class
+   * @return An object
+   * @throws Exception Throws exception if there's something wrong
+   */
+  default <T> T deserialize(Class<T> prototype, InputStream input) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      output.write(buffer, 0, read);
+    }
+    return deserialize(prototype, output.toByteArray());
+  }
 }
@@ -0,0 +1,36 @@
+package com.bigsonata.requests.common;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs blocking-style code on virtual threads. This is the JDK 21+ implementation, packaged under
+ * `META-INF/versions/21` of the multi-release JAR.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 01:15
+ */
+public final class VirtualThreads {
+  private VirtualThreads() {}
+
+  /** @return True if the JVM supports virtual threads */
+  public static boolean isSupported() {
+    return true;
+  }
+
+  /** @return True if the current thread is a virtual thread */
+  public static boolean isVirtual() {
+    return Thread.currentThread().isVirtual();
+  }
+
+  /**
+   * Create an executor running every task on its own virtual thread
+   *
+   * @param name The prefix of thread names
+   * @return The executor
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String name) {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+  }
+}
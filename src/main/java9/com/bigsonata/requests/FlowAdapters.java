@@ -0,0 +1,122 @@
+package com.bigsonata.requests;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Bridges `java.util.concurrent.Flow` and Reactive Streams, whose interfaces are equivalent, so
+ * that request pipelines can be used with Flow publishers. Only available on JDK 9+, from
+ * `META-INF/versions/9` of the multi-release JAR, as the base classes target Java 8.
+ *
+ * @author: Andy Le (@anhldbk)
+ * @date: 10/19/26
+ * @time: 01:55
+ */
+public final class FlowAdapters {
+  private FlowAdapters() {}
+
+  /**
+   * Send requests from a Flow publisher, publishing their responses. See
+   * `Requests.pipeline(Publisher, int)`
+   *
+   * @param requests The Requests instance
+   * @param source The requests to send
+   * @param maxInFlight The maximum number of outstanding requests
+   * @return A Flow publisher of responses
+   */
+  public static Flow.Publisher<HttpResponse> pipeline(
+      Requests requests, Flow.Publisher<HttpRequest> source, int maxInFlight) {
+    return toFlowPublisher(requests.pipeline(toPublisher(source), maxInFlight));
+  }
+
+  public static <T> Flow.Publisher<T> toFlowPublisher(Publisher<T> publisher) {
+    return subscriber -> publisher.subscribe(new ToReactive<>(subscriber));
+  }
+
+  public static <T> Publisher<T> toPublisher(Flow.Publisher<T> publisher) {
+    return subscriber -> publisher.subscribe(new ToFlow<>(subscriber));
+  }
+
+  /** A Reactive Streams subscriber forwarding to a Flow subscriber */
+  private static class ToReactive<T> implements Subscriber<T> {
+    private final Flow.Subscriber<? super T> subscriber;
+
+    ToReactive(Flow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscriber.onSubscribe(
+          new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+              subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+              subscription.cancel();
+            }
+          });
+    }
+
+    @Override
+    public void onNext(T item) {
+      subscriber.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      subscriber.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      subscriber.onComplete();
+    }
+  }
+
+  /** A Flow subscriber forwarding to a Reactive Streams subscriber */
+  private static class ToFlow<T> implements Flow.Subscriber<T> {
+    private final Subscriber<? super T> subscriber;
+
+    ToFlow(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscriber.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(long n) {
+              subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+              subscription.cancel();
+            }
+          });
+    }
+
+    @Override
+    public void onNext(T item) {
+      subscriber.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      subscriber.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      subscriber.onComplete();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.bigsonata.requests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A loopback Http server for tests. Records the requests it receives and the connections they
+ * came over, and hands each of them to a handler along with its (1-based) arrival number.
+ */
+class StubServer implements AutoCloseable {
+  interface Handler {
+    void handle(HttpExchange exchange, int n) throws Exception;
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<String> requests = new ArrayList<>(); // guarded by this
+  private final Set<InetSocketAddress> connections = new HashSet<>(); // guarded by this
+
+  StubServer(Handler handler) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(executor);
+    server.createContext(
+        "/",
+        exchange -> {
+          int n;
+          synchronized (this) {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            connections.add(exchange.getRemoteAddress());
+            n = requests.size();
+          }
+          try {
+            drain(exchange.getRequestBody());
+            handler.handle(exchange, n);
+          } catch (Exception e) {
+            // e.g. the client aborted the response
+          } finally {
+            exchange.close();
+          }
+        });
+    server.start();
+  }
+
+  /** A handler answering every request with a status and a body */
+  static Handler respond(int statusCode, String body) {
+    return (exchange, n) -> respond(exchange, statusCode, body);
+  }
+
+  static void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+    byte[] bytes = body.getBytes("UTF-8");
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(statusCode, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static void drain(InputStream input) throws IOException {
+    byte[] buffer = new byte[8192];
+    while (input.read(buffer) >= 0) {
+      // discard
+    }
+  }
+
+  int port() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * @param path The path (and query) of the url
+   * @return An url of the server, by its IP address
+   */
+  String url(String path) {
+    return "http://127.0.0.1:" + port() + path;
+  }
+
+  /** @return Received requests, as "METHOD /path?query" */
+  synchronized List<String> requests() {
+    return Collections.unmodifiableList(new ArrayList<>(requests));
+  }
+
+  synchronized int count() {
+    return requests.size();
+  }
+
+  /** @return The number of distinct connections requests came over */
+  synchronized int connections() {
+    return connections.size();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,91 @@
+package com.bigsonata.requests;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestBulkExecution {
+  static Requests requests;
+  static StubServer server;
+
+  @BeforeClass
+  public static void initialize() throws Exception {
+    requests = Requests.newBuilder().setTimeout(5000).build(AsyncRequests.class);
+    server =
+        new StubServer(
+            (exchange, n) -> {
+              String path = exchange.getRequestURI().getPath();
+              if (path.startsWith("/slow")) {
+                Thread.sleep(300);
+              }
+              StubServer.respond(exchange, path.startsWith("/missing") ? 404 : 200, path);
+            });
+  }
+
+  @AfterClass
+  public static void dispose() {
+    requests.dispose();
+    server.close();
+  }
+
+  @Test
+  public void testMixedOutcomes() throws Exception {
+    List<HttpRequest> batch =
+        Arrays.asList(
+            requests.get(server.url("/slow")),
+            requests.get(server.url("/fast")),
+            requests.get("not a url"), // process throws
+            requests.get("http://127.0.0.1:1/"), // refused
+            requests.get(server.url("/missing")));
+    List<HttpResponse> responses = new ArrayList<>();
+    Iterator<HttpResponse> iterator = requests.execAll(batch, 5);
+    while (iterator.hasNext()) {
+      responses.add(iterator.next());
+    }
+
+    assertEquals(batch.size(), responses.size());
+    // In completion order: the slow one comes last
+    assertEquals("/slow", responses.get(responses.size() - 1).asString());
+    for (HttpResponse response : responses) {
+      assertTrue(batch.contains(response.request));
+      String url = response.request.url;
+      if (url.startsWith("not") || url.endsWith(":1/")) {
+        assertFalse(url, response.isSuccess);
+        assertTrue(url, response.reason != null);
+      } else {
+        assertTrue(url, response.isSuccess);
+        assertEquals(url.endsWith("/missing") ? 404 : 200, response.statusCode());
+      }
+    }
+  }
+
+  @Test
+  public void testMaxInFlight() throws Exception {
+    int before = server.count();
+    List<HttpRequest> batch = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      batch.add(requests.get(server.url("/slow/" + i)));
+    }
+    long startedAt = System.currentTimeMillis();
+    Iterator<HttpResponse> iterator = requests.execAll(batch, 2);
+    int count = 0;
+    while (iterator.hasNext()) {
+      assertTrue(iterator.next().isSuccess);
+      count++;
+    }
+
+    assertEquals(6, count);
+    assertEquals(before + 6, server.count());
+    // Three rounds of two slow requests
+    assertTrue(System.currentTimeMillis() - startedAt >= 900);
+  }
+}
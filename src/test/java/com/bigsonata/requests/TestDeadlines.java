@@ -0,0 +1,164 @@
+package com.bigsonata.requests;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestDeadlines {
+  static Requests requests;
+  static StubServer slow; // answers after a second
+  static final int TIMEOUT = 5000;
+
+  @BeforeClass
+  public static void initialize() throws Exception {
+    requests =
+        Requests.newBuilder()
+            .setTimeout(TIMEOUT)
+            .setRetryPolicy(
+                RetryPolicy.newBuilder()
+                    .setMaxAttempts(10)
+                    .setBackoff(200, 200)
+                    .setRetryOnTimeouts(true)
+                    .build())
+            .build(AsyncRequests.class);
+    slow =
+        new StubServer(
+            (exchange, n) -> {
+              Thread.sleep(1000);
+              StubServer.respond(exchange, 200, "late");
+            });
+  }
+
+  @AfterClass
+  public static void dispose() {
+    requests.dispose();
+    slow.close();
+  }
+
+  private static void assertTimedOut(HttpResponse response) {
+    assertFalse(response.isSuccess);
+    assertTrue(String.valueOf(response.reason), response.reason instanceof TimeoutException);
+  }
+
+  @Test
+  public void testDeadlineInFlight() throws Exception {
+    long startedAt = System.currentTimeMillis();
+    HttpResponse response = requests.get(slow.url("/in-flight")).deadlineIn(300).exec().get();
+
+    assertTimedOut(response);
+    assertTrue(System.currentTimeMillis() - startedAt < 900);
+    // Timeouts are retried, but no attempt can start past the deadline
+    assertEquals(1, response.attempts);
+  }
+
+  @Test
+  public void testDeadlinePassed() throws Exception {
+    HttpResponse response =
+        requests.get(slow.url("/passed")).deadline(System.currentTimeMillis() - 1).exec().get();
+
+    assertTimedOut(response);
+    assertFalse(slow.requests().contains("GET /passed"));
+  }
+
+  @Test
+  public void testDeadlineAcrossRetries() throws Exception {
+    try (StubServer server = new StubServer(StubServer.respond(503, "busy"))) {
+      HttpResponse response = requests.get(server.url("/")).deadlineIn(300).exec().get();
+
+      // Attempts at 0 and 200ms: the next one would start past the deadline
+      assertEquals(2, response.attempts);
+      Thread.sleep(500);
+      assertEquals(2, server.count());
+    }
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    long startedAt = System.currentTimeMillis();
+    HttpResponse response =
+        requests.get(slow.url("/timeout")).timeout(300).retry(RetryPolicy.NONE).exec().get();
+
+    assertTimedOut(response);
+    assertTrue(System.currentTimeMillis() - startedAt < 900);
+  }
+
+  @Test
+  public void testReadTimeout() throws Exception {
+    // Sends the status and part of the body, then stalls
+    try (StubServer server =
+        new StubServer(
+            (exchange, n) -> {
+              exchange.sendResponseHeaders(200, 0);
+              OutputStream output = exchange.getResponseBody();
+              output.write("partial".getBytes("UTF-8"));
+              output.flush();
+              Thread.sleep(1000);
+              output.close();
+            })) {
+      long startedAt = System.currentTimeMillis();
+      HttpResponse response =
+          requests.get(server.url("/")).readTimeout(300).retry(RetryPolicy.NONE).exec().get();
+
+      assertTimedOut(response);
+      assertTrue(System.currentTimeMillis() - startedAt < 900);
+    }
+  }
+
+  @Test
+  public void testConnectTimeout() throws Exception {
+    // A server which never accepts, with a full backlog: further connections hang
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      InetSocketAddress address =
+          new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+      List<Socket> backlog = new ArrayList<>();
+      try {
+        fill(address, backlog);
+        long startedAt = System.currentTimeMillis();
+        HttpResponse response =
+            requests
+                .get("http://127.0.0.1:" + server.getLocalPort() + "/")
+                .connectTimeout(300)
+                .retry(RetryPolicy.NONE)
+                .exec()
+                .get();
+
+        assertFalse(response.isSuccess);
+        assertTrue(String.valueOf(response.reason), response.reason instanceof IOException);
+        assertTrue(System.currentTimeMillis() - startedAt < 2000);
+      } finally {
+        for (Socket socket : backlog) {
+          socket.close();
+        }
+      }
+    }
+  }
+
+  private static void fill(InetSocketAddress address, List<Socket> backlog) throws IOException {
+    for (int i = 0; i < 16; i++) {
+      Socket socket = new Socket();
+      try {
+        socket.connect(address, 200);
+        backlog.add(socket);
+      } catch (SocketTimeoutException e) {
+        socket.close();
+        return;
+      }
+    }
+    throw new IOException("Unable to fill the backlog of " + address);
+  }
+}
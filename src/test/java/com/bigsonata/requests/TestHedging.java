@@ -0,0 +1,198 @@
+package com.bigsonata.requests;
+
+import com.bigsonata.requests.common.RequestCounters;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestHedging {
+  static final int TIMEOUT = 5000;
+
+  /** A policy hedging after a fixed delay, keeping the latencies it is fed */
+  private static class RecordingPolicy extends HedgePolicy {
+    final List<Long> samples = new CopyOnWriteArrayList<>();
+
+    RecordingPolicy(long delay) {
+      super(HedgePolicy.newBuilder().setDelay(delay).setBudget(1, 100));
+    }
+
+    @Override
+    public void record(String host, long nanos) {
+      samples.add(nanos);
+    }
+  }
+
+  /** The first request answers after a second, later ones right away */
+  private static StubServer slowPrimary() throws Exception {
+    return new StubServer(
+        (exchange, n) -> {
+          if (n == 1) {
+            Thread.sleep(1000);
+            StubServer.respond(exchange, 200, "slow");
+          } else {
+            StubServer.respond(exchange, 200, "fast");
+          }
+        });
+  }
+
+  @Test
+  public void testFastestLegWins() throws Exception {
+    try (StubServer server = slowPrimary()) {
+      Requests requests =
+          Requests.newBuilder()
+              .setTimeout(TIMEOUT)
+              .setMetrics(true)
+              .setHedgePolicy(HedgePolicy.newBuilder().setDelay(100).build())
+              .build(AsyncRequests.class);
+      try {
+        List<HttpResponse> responses = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        long startedAt = System.currentTimeMillis();
+        requests
+            .get(server.url("/"))
+            .exec(
+                response -> {
+                  responses.add(response);
+                  latch.countDown();
+                });
+        latch.await();
+        assertTrue(System.currentTimeMillis() - startedAt < 900);
+
+        Thread.sleep(1500); // past the slow response
+        assertEquals(1, responses.size());
+        assertEquals("fast", responses.get(0).asString());
+        assertEquals(2, server.count());
+        // The primary was cancelled: neither a response nor a failure
+        RequestCounters.Snapshot counters = requests.counters().get(0);
+        assertEquals(2, counters.getRequests());
+        assertEquals(1, counters.getResponses());
+        assertEquals(0, counters.getFailures());
+        assertEquals(0, counters.getInFlight());
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testOnlyGetsAreHedged() throws Exception {
+    try (StubServer server = slowPrimary()) {
+      Requests requests =
+          Requests.newBuilder()
+              .setTimeout(TIMEOUT)
+              .setHedgePolicy(HedgePolicy.newBuilder().setDelay(50).build())
+              .build(AsyncRequests.class);
+      try {
+        HttpResponse response = requests.post(server.url("/")).body("data").exec().get();
+
+        assertEquals("slow", response.asString());
+        assertEquals(1, server.count());
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testHedgeWinsAfterPrimaryFails() throws Exception {
+    // The primary stalls mid-body until it times out, while the hedge keeps sending its body
+    try (StubServer server =
+        new StubServer(
+            (exchange, n) -> {
+              exchange.sendResponseHeaders(200, 0);
+              OutputStream output = exchange.getResponseBody();
+              for (int i = 0; i < 5; i++) {
+                output.write((n == 1 ? "p" : "h").getBytes("UTF-8"));
+                output.flush();
+                Thread.sleep(n == 1 ? 2000 : 100);
+              }
+              output.close();
+            })) {
+      Requests requests =
+          Requests.newBuilder()
+              .setTimeout(TIMEOUT)
+              .setHedgePolicy(HedgePolicy.newBuilder().setDelay(50).build())
+              .build(AsyncRequests.class);
+      try {
+        long startedAt = System.currentTimeMillis();
+        HttpResponse response = requests.get(server.url("/")).readTimeout(300).exec().get();
+
+        assertTrue(String.valueOf(response.reason), response.isSuccess);
+        assertEquals("hhhhh", response.asString());
+        assertEquals(2, server.count());
+        assertTrue(System.currentTimeMillis() - startedAt < 1500);
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testPercentileDelay() throws Exception {
+    try (StubServer server =
+        new StubServer(
+            (exchange, n) -> {
+              Thread.sleep(20);
+              StubServer.respond(exchange, 200, "ok");
+            })) {
+      HedgePolicy policy = HedgePolicy.newBuilder().setDelay(1000).setPercentile(90).build();
+      Requests requests = Requests.newBuilder().setHedgePolicy(policy).build(AsyncRequests.class);
+      try {
+        String host = "127.0.0.1:" + server.port();
+        assertEquals(1000, policy.delay(host)); // until enough samples
+        for (int i = 0; i < 100; i++) {
+          assertTrue(requests.get(server.url("/")).exec().get().isSuccess);
+        }
+
+        long delay = policy.delay(host);
+        assertTrue(String.valueOf(delay), delay >= 20 && delay < 500);
+        assertEquals(100, server.count()); // never hedged
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testCancelledLegsAreNotSampled() throws Exception {
+    // The primary sends its body slowly, so that it is cancelled mid-body
+    try (StubServer server =
+        new StubServer(
+            (exchange, n) -> {
+              if (n > 1) {
+                StubServer.respond(exchange, 200, "fast");
+                return;
+              }
+              exchange.sendResponseHeaders(200, 0);
+              OutputStream output = exchange.getResponseBody();
+              for (int i = 0; i < 50; i++) {
+                output.write("slow".getBytes("UTF-8"));
+                output.flush();
+                Thread.sleep(20);
+              }
+              output.close();
+            })) {
+      RecordingPolicy policy = new RecordingPolicy(100);
+      Requests requests = Requests.newBuilder().setHedgePolicy(policy).build(AsyncRequests.class);
+      try {
+        HttpResponse response = requests.get(server.url("/")).exec().get();
+        assertTrue(response.isSuccess);
+        assertEquals("fast", response.asString());
+
+        Thread.sleep(500); // let the primary be aborted
+        assertEquals(2, server.count());
+        assertEquals(1, policy.samples.size());
+        // The time since the primary started, not the partial latency of the loser
+        assertTrue(policy.samples.get(0) >= 100000000L);
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+}
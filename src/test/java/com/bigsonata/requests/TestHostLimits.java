@@ -0,0 +1,59 @@
+package com.bigsonata.requests;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestHostLimits {
+  /** Answers slowly, keeping track of the peak number of concurrent requests */
+  private static class Peak {
+    final AtomicInteger current = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger();
+
+    StubServer.Handler handler() {
+      return (exchange, n) -> {
+        peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(200);
+        } finally {
+          current.decrementAndGet();
+        }
+        StubServer.respond(exchange, 200, "ok");
+      };
+    }
+  }
+
+  @Test
+  public void testOverrideAboveDefault() throws Exception {
+    Peak hot = new Peak();
+    Peak cold = new Peak();
+    try (StubServer hotServer = new StubServer(hot.handler());
+        StubServer coldServer = new StubServer(cold.handler())) {
+      Requests requests =
+          Requests.newBuilder()
+              .setMaxConnectionsPerHost(2)
+              .setMaxConnectionsPerHost("127.0.0.1:" + hotServer.port(), 4)
+              .build(AsyncRequests.class);
+      try {
+        List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+          responses.add(requests.get(hotServer.url("/")).exec());
+          responses.add(requests.get(coldServer.url("/")).exec());
+        }
+        for (CompletableFuture<HttpResponse> response : responses) {
+          assertTrue(response.get().isSuccess); // queued, not failed
+        }
+        assertEquals(4, hot.peak.get());
+        assertEquals(2, cold.peak.get());
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+}
@@ -1,38 +1,58 @@
 package com.bigsonata.requests;
 
+import com.bigsonata.requests.common.Latency;
+import com.bigsonata.requests.common.LatencyStats;
+import com.bigsonata.requests.common.VirtualThreads;
+import com.bigsonata.requests.common.dns.StaticNameResolver;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestRequests {
   static Requests requests;
+  static StubServer server;
   static final int THREADS = 8;
   static final int TIMEOUT = 5000;
-  static final String URL = "https://bigsonata.com/";
+  static String URL; // of the stub, by a name resolved without DNS
   static final String USER_AGENT =
       "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/51.0.2704.103 Safari/537.36";
 
   @BeforeClass
   public static void initialize() throws Exception {
+    server = new StubServer(StubServer.respond(200, "Hello from the stub"));
+    URL = "http://stub.test:" + server.port() + "/";
     requests =
         Requests.newBuilder()
             .setTimeout(TIMEOUT)
             .setIoThreads(THREADS * 2)
+            .setNameResolver(new StaticNameResolver().add("stub.test", "127.0.0.1"))
             .build(AsyncRequests.class);
   }
 
   @AfterClass
   public static void dispose() {
     requests.dispose();
+    server.close();
   }
 
   @Test
@@ -45,6 +65,329 @@ public class TestRequests {
     assertNotEquals(response.request, null);
   }
 
+  @Test
+  public void testSend() throws Exception {
+    ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("send");
+    Future<HttpResponse> responseFuture =
+        executor.submit(() -> requests.get(URL + "send").headerUserAgent(USER_AGENT).send());
+
+    HttpResponse response = responseFuture.get();
+
+    assertEquals(response.isSuccess, true);
+    assertTrue(server.requests().contains("GET /send"));
+    executor.shutdown();
+  }
+
+  @Test
+  public void testSendCoalescedWithExec() throws Exception {
+    Requests coalescing = Requests.newBuilder().setCoalescing(true).build(AsyncRequests.class);
+    ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("send");
+    try (StubServer server =
+        new StubServer(
+            (exchange, n) -> {
+              Thread.sleep(300);
+              StubServer.respond(exchange, 200, "ok");
+            })) {
+      HttpRequest blocked = coalescing.get(server.url("/"));
+      Future<HttpResponse> sent = executor.submit(() -> blocked.send());
+      Thread.sleep(100);
+      // Joins the call of the blocked request, whose response is delivered on an I/O thread
+      String thread =
+          coalescing
+              .get(server.url("/"))
+              .exec()
+              .thenApply(response -> Thread.currentThread().getName())
+              .get();
+
+      assertEquals(sent.get().isSuccess, true);
+      assertEquals(1, server.count());
+      assertFalse(thread, thread.startsWith("nioEventLoopGroup"));
+      assertFalse(blocked.blocking);
+    } finally {
+      executor.shutdown();
+      coalescing.dispose();
+    }
+  }
+
+  @Test
+  public void testCoalescedDeadlines() throws Exception {
+    Requests coalescing = Requests.newBuilder().setCoalescing(true).build(AsyncRequests.class);
+    try (StubServer server =
+        new StubServer(
+            (exchange, n) -> {
+              Thread.sleep(500);
+              StubServer.respond(exchange, 200, "ok");
+            })) {
+      CompletableFuture<HttpResponse> leader =
+          coalescing.get(server.url("/")).deadlineIn(5000).exec();
+      long startedAt = System.currentTimeMillis();
+      HttpResponse follower = coalescing.get(server.url("/")).deadlineIn(200).exec().get();
+      // Another timeout: a call of its own
+      CompletableFuture<HttpResponse> other = coalescing.get(server.url("/")).timeout(3000).exec();
+
+      assertFalse(follower.isSuccess);
+      assertTrue(follower.reason instanceof TimeoutException);
+      assertTrue(System.currentTimeMillis() - startedAt < 450);
+      assertTrue(leader.get().isSuccess);
+      assertTrue(other.get().isSuccess);
+      assertEquals(2, server.count());
+    } finally {
+      coalescing.dispose();
+    }
+  }
+
+  @Test
+  public void testJmxWithoutMetrics() throws Exception {
+    Requests monitored =
+        Requests.newBuilder().setJmxName("no-metrics").setMetrics(false).build(AsyncRequests.class);
+    try {
+      assertTrue(monitored.get(server.url("/")).exec().get().isSuccess);
+
+      ObjectName name = new ObjectName("com.bigsonata.requests:type=Requests,name=no-metrics");
+      Object requests = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Requests");
+      assertEquals(0L, requests);
+    } finally {
+      monitored.dispose();
+    }
+  }
+
+  @Test
+  public void testLatenciesOfPooledConnections() throws Exception {
+    Requests measured = Requests.newBuilder().setLatencyHistograms(true).build(AsyncRequests.class);
+    try {
+      for (int i = 0; i < 2; i++) {
+        assertTrue(measured.get(server.url("/")).exec().get().isSuccess);
+      }
+
+      LatencyStats.Snapshot snapshot = measured.latencies().get(0);
+      assertEquals(2, snapshot.phase(Latency.Phase.TOTAL).count());
+      // The second request reused the connection of the first one, without connecting
+      assertEquals(1, snapshot.phase(Latency.Phase.CONNECT).count());
+      assertEquals(0, snapshot.phase(Latency.Phase.TLS).count());
+    } finally {
+      measured.dispose();
+    }
+  }
+
+  @Test
+  public void testPrepared() throws Exception {
+    PreparedRequest prepared =
+        requests.prepare(Http.METHOD_GET, URL + "pages/{page}").header("User-Agent", USER_AGENT);
+    HttpResponse response = prepared.request("a b").exec().get();
+
+    assertEquals(response.isSuccess, true);
+    assertEquals("Hello from the stub", response.asString());
+    assertTrue(server.requests().contains("GET /pages/a%20b"));
+  }
+
+  @Test
+  public void testPreparedWithChangedUrl() throws Exception {
+    HttpRequest request = requests.prepare(Http.METHOD_GET, URL + "pages/{page}").request("a");
+    request.url = URL + "changed/a b";
+    HttpResponse response = request.exec().get();
+
+    assertEquals(response.isSuccess, true);
+    assertTrue(server.requests().contains("GET /changed/a%20b"));
+  }
+
+  @Test
+  public void testPipeline() throws Exception {
+    final int count = 3;
+    Publisher<HttpRequest> source =
+        subscriber ->
+            subscriber.onSubscribe(
+                new Subscription() {
+                  private int sent = 0;
+
+                  @Override
+                  public synchronized void request(long n) {
+                    for (long i = 0; i < n && sent < count; i++, sent++) {
+                      subscriber.onNext(
+                          requests.get(URL + "pipeline/" + sent).headerUserAgent(USER_AGENT));
+                    }
+                    if (sent == count) {
+                      sent++;
+                      subscriber.onComplete();
+                    }
+                  }
+
+                  @Override
+                  public void cancel() {}
+                });
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger succeeded = new AtomicInteger();
+    requests
+        .pipeline(source, 2)
+        .subscribe(
+            new Subscriber<HttpResponse>() {
+              private Subscription subscription;
+
+              @Override
+              public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+              }
+
+              @Override
+              public void onNext(HttpResponse response) {
+                if (response.isSuccess) {
+                  succeeded.incrementAndGet();
+                }
+                subscription.request(1);
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                latch.countDown();
+              }
+
+              @Override
+              public void onComplete() {
+                latch.countDown();
+              }
+            });
+
+    latch.await();
+    assertEquals(count, succeeded.get());
+    for (int i = 0; i < count; i++) {
+      assertTrue(server.requests().contains("GET /pipeline/" + i));
+    }
+  }
+
+  @Test
+  public void testPipelineWithinHostLimit() throws Exception {
+    final int count = 20;
+    final AtomicInteger generated = new AtomicInteger();
+    final AtomicInteger delivered = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger(); // requests pulled without a response yet
+    try (StubServer slow =
+        new StubServer(
+            (exchange, n) -> {
+              Thread.sleep(50);
+              StubServer.respond(exchange, 200, "ok");
+            })) {
+      Requests limited =
+          Requests.newBuilder()
+              .setMaxConnectionsPerHost("127.0.0.1:" + slow.port(), 2)
+              .build(AsyncRequests.class);
+      Publisher<HttpRequest> source =
+          subscriber ->
+              subscriber.onSubscribe(
+                  new Subscription() {
+                    @Override
+                    public synchronized void request(long n) {
+                      for (long i = 0; i < n && generated.get() < count; i++) {
+                        peak.accumulateAndGet(
+                            generated.incrementAndGet() - delivered.get(), Math::max);
+                        subscriber.onNext(limited.get(slow.url("/")));
+                      }
+                      if (generated.get() == count) {
+                        generated.incrementAndGet();
+                        subscriber.onComplete();
+                      }
+                    }
+
+                    @Override
+                    public void cancel() {}
+                  });
+
+      final CountDownLatch latch = new CountDownLatch(1);
+      limited
+          .pipeline(source, 10)
+          .subscribe(
+              new Subscriber<HttpResponse>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                  subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(HttpResponse response) {
+                  delivered.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                  latch.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                  latch.countDown();
+                }
+              });
+
+      latch.await();
+      limited.dispose();
+      assertEquals(count, delivered.get());
+      // Bounded by the limit of the host rather than by maxInFlight
+      assertTrue(String.valueOf(peak.get()), peak.get() <= 3);
+    }
+  }
+
+  @Test
+  public void testGETWithCallback() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final HttpResponse[] responses = new HttpResponse[1];
+    requests
+        .get(URL + "callback")
+        .headerUserAgent(USER_AGENT)
+        .exec(
+            response -> {
+              responses[0] = response;
+              latch.countDown();
+            });
+
+    latch.await();
+
+    assertEquals(responses[0].isSuccess, true);
+    assertNotEquals(responses[0].request, null);
+    assertTrue(server.requests().contains("GET /callback"));
+  }
+
+  @Test
+  public void testStream() throws Exception {
+    StreamingHttpResponse response =
+        requests.get(URL + "stream").headerUserAgent(USER_AGENT).stream().get();
+    assertEquals(response.isSuccess, true);
+
+    final AtomicLong size = new AtomicLong(0);
+    final CountDownLatch latch = new CountDownLatch(1);
+    response
+        .body()
+        .subscribe(
+            new Subscriber<ByteBuffer>() {
+              private Subscription subscription;
+
+              @Override
+              public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+              }
+
+              @Override
+              public void onNext(ByteBuffer chunk) {
+                size.addAndGet(chunk.remaining());
+                subscription.request(1);
+              }
+
+              @Override
+              public void onError(Throwable t) {
+                latch.countDown();
+              }
+
+              @Override
+              public void onComplete() {
+                latch.countDown();
+              }
+            });
+
+    latch.await();
+    assertEquals("Hello from the stub".length(), size.get());
+    assertTrue(server.requests().contains("GET /stream"));
+  }
+
   @Test
   public void testLoad() throws InterruptedException {
     AtomicInteger error = new AtomicInteger(0);
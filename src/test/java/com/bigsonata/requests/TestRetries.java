@@ -0,0 +1,111 @@
+package com.bigsonata.requests;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestRetries {
+  static Requests requests;
+
+  @BeforeClass
+  public static void initialize() throws Exception {
+    requests =
+        Requests.newBuilder()
+            .setRetryPolicy(
+                RetryPolicy.newBuilder().setMaxAttempts(3).setBackoff(100, 100).build())
+            .build(AsyncRequests.class);
+  }
+
+  @AfterClass
+  public static void dispose() {
+    requests.dispose();
+  }
+
+  @Test
+  public void testRetryOnStatus() throws Exception {
+    try (StubServer server = new StubServer(StubServer.respond(503, "busy"))) {
+      long startedAt = System.currentTimeMillis();
+      HttpResponse response = requests.get(server.url("/")).exec().get();
+
+      assertEquals(503, response.statusCode());
+      assertEquals(3, response.attempts);
+      assertEquals(3, server.count());
+      // Two backoff delays of 100ms
+      assertTrue(System.currentTimeMillis() - startedAt >= 200);
+    }
+  }
+
+  @Test
+  public void testSuccessAfterRetry() throws Exception {
+    try (StubServer server =
+        new StubServer((exchange, n) -> StubServer.respond(exchange, n == 1 ? 503 : 200, "ok"))) {
+      HttpResponse response = requests.get(server.url("/")).exec().get();
+
+      assertEquals(200, response.statusCode());
+      assertEquals(2, response.attempts);
+      assertEquals(2, server.count());
+    }
+  }
+
+  @Test
+  public void testNoRetryOnClientErrors() throws Exception {
+    try (StubServer server = new StubServer(StubServer.respond(400, "bad"))) {
+      HttpResponse response = requests.get(server.url("/")).exec().get();
+
+      assertEquals(400, response.statusCode());
+      assertEquals(1, response.attempts);
+      assertEquals(1, server.count());
+    }
+  }
+
+  @Test
+  public void testRetryOnConnectFailure() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort(); // closed right away: connections are refused
+    }
+    HttpResponse response = requests.get("http://127.0.0.1:" + port + "/").exec().get();
+
+    assertFalse(response.isSuccess);
+    assertEquals(3, response.attempts);
+    Throwable reason = response.reason;
+    while (reason.getCause() != null && !(reason instanceof ConnectException)) {
+      reason = reason.getCause();
+    }
+    assertTrue(String.valueOf(response.reason), reason instanceof ConnectException);
+  }
+
+  @Test
+  public void testNoRetryOfStreamedBodies() throws Exception {
+    try (StubServer server = new StubServer(StubServer.respond(503, "busy"))) {
+      HttpResponse response =
+          requests
+              .put(server.url("/"))
+              .body(new ByteArrayInputStream("once".getBytes("UTF-8")))
+              .exec()
+              .get();
+
+      assertEquals(503, response.statusCode());
+      assertEquals(1, server.count());
+    }
+  }
+
+  @Test
+  public void testNoRetryWithNone() throws Exception {
+    try (StubServer server = new StubServer(StubServer.respond(503, "busy"))) {
+      HttpResponse response = requests.get(server.url("/")).retry(RetryPolicy.NONE).exec().get();
+
+      assertEquals(503, response.statusCode());
+      assertEquals(1, response.attempts);
+      assertEquals(1, server.count());
+    }
+  }
+}
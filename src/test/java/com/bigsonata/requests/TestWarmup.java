@@ -0,0 +1,57 @@
+package com.bigsonata.requests;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestWarmup {
+  @Test
+  public void testWarmup() throws Exception {
+    try (StubServer server = new StubServer(StubServer.respond(200, "ok"))) {
+      Requests requests = Requests.newBuilder().build(AsyncRequests.class);
+      try {
+        requests.warmup(Collections.singletonList(server.url("")), 3).get();
+        assertEquals(3, server.connections());
+
+        // Later requests use pooled connections
+        assertTrue(requests.get(server.url("/")).exec().get().isSuccess);
+        assertEquals(3, server.connections());
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testWarmupOfServices() throws Exception {
+    try (StubServer first = new StubServer(StubServer.respond(200, "ok"));
+        StubServer second = new StubServer(StubServer.respond(200, "ok"))) {
+      Requests requests =
+          Requests.newBuilder()
+              .addService("users", first.url(""), second.url(""))
+              .setWarmup(Arrays.asList("http://users"), 2)
+              .build(AsyncRequests.class);
+      try {
+        requests.warmedUp().get();
+        assertEquals(2, first.connections());
+        assertEquals(2, second.connections());
+      } finally {
+        requests.dispose();
+      }
+    }
+  }
+
+  @Test(expected = Exception.class)
+  public void testWarmupOfUnreachableHosts() throws Exception {
+    Requests requests = Requests.newBuilder().build(AsyncRequests.class);
+    try {
+      requests.warmup(Collections.singletonList("http://127.0.0.1:1"), 2).get();
+    } finally {
+      requests.dispose();
+    }
+  }
+}
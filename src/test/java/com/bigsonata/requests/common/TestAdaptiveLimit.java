@@ -0,0 +1,43 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestAdaptiveLimit {
+  @Test
+  public void testGrowAndBackOff() {
+    AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100);
+    for (int i = 0; i < 1000; i++) {
+      limit.update(1000000, limit.limit(), false);
+    }
+    assertEquals(100, limit.limit());
+
+    // Latency rises way beyond the tolerance
+    for (int i = 0; i < 50; i++) {
+      limit.update(10000000, limit.limit(), false);
+    }
+    assertTrue(limit.limit() < 20);
+  }
+
+  @Test
+  public void testDrops() {
+    AdaptiveLimit limit = new AdaptiveLimit(50, 1, 100);
+    limit.update(1000000, 50, true);
+    assertEquals(45, limit.limit());
+    for (int i = 0; i < 100; i++) {
+      limit.update(1000000, 50, true);
+    }
+    assertEquals(1, limit.limit());
+  }
+
+  @Test
+  public void testUnusedLimit() {
+    AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100);
+    for (int i = 0; i < 100; i++) {
+      limit.update(1000000, 1, false);
+    }
+    assertEquals(10, limit.limit());
+  }
+}
@@ -0,0 +1,81 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TestCircuitBreaker {
+  private static final long FAST = 1000000; // 1ms
+  private static final long SLOW = 500000000; // 500ms
+
+  private CircuitBreaker newBreaker() {
+    return CircuitBreaker.newBuilder()
+        .setWindow(10, 4)
+        .setFailureRateThreshold(0.5)
+        .setSlowCallRateThreshold(0.8, 100)
+        .setOpenDuration(1000)
+        .setHalfOpenCalls(2)
+        .build();
+  }
+
+  @Test
+  public void testOpensOnFailures() {
+    CircuitBreaker breaker = newBreaker();
+    long now = 0;
+    for (int i = 0; i < 3; i++) {
+      breaker.onResult(breaker.tryAcquire(now), i == 0, FAST, now);
+    }
+    // Not enough calls yet
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+    breaker.onResult(breaker.tryAcquire(now), true, FAST, now);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(now + 999));
+  }
+
+  @Test
+  public void testOpensOnSlowCalls() {
+    CircuitBreaker breaker = newBreaker();
+    for (int i = 0; i < 5; i++) {
+      breaker.onResult(breaker.tryAcquire(0), false, i == 0 ? FAST : SLOW, 0);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+  }
+
+  @Test
+  public void testHalfOpen() {
+    CircuitBreaker breaker = newBreaker();
+    long stale = breaker.tryAcquire(0);
+    for (int i = 0; i < 4; i++) {
+      breaker.onResult(breaker.tryAcquire(0), true, FAST, 0);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+    // Only a few probes are let through
+    long first = breaker.tryAcquire(1000);
+    long second = breaker.tryAcquire(1000);
+    assertNotEquals(CircuitBreaker.REJECTED, first);
+    assertNotEquals(CircuitBreaker.REJECTED, second);
+    assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(1000));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+    // Cancelled probes give their permit back, stale outcomes are ignored
+    breaker.onIgnored(second);
+    breaker.onResult(stale, true, FAST, 1000);
+    second = breaker.tryAcquire(1000);
+    assertNotEquals(CircuitBreaker.REJECTED, second);
+
+    // A failed probe re-opens the breaker
+    breaker.onResult(first, false, FAST, 1000);
+    breaker.onResult(second, true, FAST, 1000);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+    // Healthy probes close it
+    first = breaker.tryAcquire(2000);
+    second = breaker.tryAcquire(2000);
+    breaker.onResult(first, false, FAST, 2000);
+    breaker.onResult(second, false, FAST, 2000);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+}
@@ -0,0 +1,44 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestLatencyHistogram {
+  @Test
+  public void testBuckets() {
+    long[] values = {0, 1, 31, 32, 33, 1000, 123456789L, 1L << 40};
+    for (long value : values) {
+      long bucketValue = LatencyHistogram.valueOf(LatencyHistogram.indexOf(value));
+      assertTrue(Math.abs(bucketValue - value) <= value / 32 + 1);
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100000; i++) {
+      histogram.record(i * 1000);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(100000, snapshot.count());
+    assertEquals(100000L * 1000, snapshot.max());
+    assertTrue(Math.abs(snapshot.percentile(50) - 50000L * 1000) < 50000L * 1000 / 32);
+    assertTrue(Math.abs(snapshot.percentile(99) - 99000L * 1000) < 99000L * 1000 / 32);
+  }
+
+  @Test
+  public void testLatencyStats() {
+    LatencyStats stats = new LatencyStats();
+    Latency latency = new Latency(0, 1).nanos(Latency.Phase.TOTAL, 1000000);
+    stats.record("bigsonata.com:443", "GET", latency);
+    stats.record("bigsonata.com:443", "GET", latency);
+
+    assertEquals(1, stats.snapshot().size());
+    LatencyStats.Snapshot snapshot = stats.snapshot().get(0);
+    assertEquals(2, snapshot.phase(Latency.Phase.TOTAL).count());
+    assertEquals(0, snapshot.phase(Latency.Phase.CONNECT).count()); // never measured
+  }
+}
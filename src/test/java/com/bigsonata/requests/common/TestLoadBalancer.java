@@ -0,0 +1,81 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestLoadBalancer {
+  private static final long FAST = 1000000; // 1ms
+  private static final long SLOW = 50000000; // 50ms
+
+  @Test
+  public void testUrl() throws Exception {
+    LoadBalancer balancer = LoadBalancer.newBuilder("orders", "http://10.0.0.1:8080/api/").build();
+    LoadBalancer.Endpoint endpoint = balancer.endpoints().get(0);
+    assertEquals("http://10.0.0.1:8080/api/v1/items?id=1", endpoint.url("/v1/items", "id=1"));
+    assertEquals("http://10.0.0.1:8080/api", endpoint.url("", null));
+  }
+
+  @Test
+  public void testPrefersFastEndpoints() throws Exception {
+    LoadBalancer balancer =
+        LoadBalancer.newBuilder("orders", "http://a", "http://b", "http://c")
+            .setOutlierEjection(5, 0, 30000, 0.5)
+            .build();
+    Map<String, Integer> picks = new HashMap<>();
+    for (int i = 0; i < 3000; i++) {
+      LoadBalancer.Endpoint endpoint = balancer.pick();
+      picks.merge(endpoint.baseUrl, 1, Integer::sum);
+      balancer.onComplete(endpoint, endpoint.baseUrl.equals("http://c") ? SLOW : FAST, false);
+    }
+    assertTrue(picks.get("http://c") < 500);
+    assertTrue(picks.get("http://a") > 1000);
+    assertTrue(picks.get("http://b") > 1000);
+  }
+
+  @Test
+  public void testEjectsFailingEndpoints() throws Exception {
+    LoadBalancer balancer =
+        LoadBalancer.newBuilder("orders", "http://a", "http://b", "http://c", "http://d")
+            .setOutlierEjection(3, 0, 30000, 0.5)
+            .build();
+    LoadBalancer.Endpoint a = balancer.endpoints().get(0);
+    for (int i = 0; i < 3; i++) {
+      balancer.onComplete(a, FAST, true);
+    }
+    assertTrue(a.isEjected());
+    for (int i = 0; i < 100; i++) {
+      LoadBalancer.Endpoint endpoint = balancer.pick();
+      assertFalse(endpoint == a);
+      balancer.onCancelled(endpoint);
+    }
+
+    // At most half of the endpoints are ejected
+    LoadBalancer.Endpoint b = balancer.endpoints().get(1);
+    LoadBalancer.Endpoint c = balancer.endpoints().get(2);
+    for (int i = 0; i < 3; i++) {
+      balancer.onComplete(b, FAST, true);
+      balancer.onComplete(c, FAST, true);
+    }
+    assertTrue(b.isEjected());
+    assertFalse(c.isEjected());
+  }
+
+  @Test
+  public void testEjectsSlowEndpoints() throws Exception {
+    LoadBalancer balancer =
+        LoadBalancer.newBuilder("orders", "http://a", "http://b", "http://c").build();
+    for (int i = 0; i < 20; i++) {
+      for (LoadBalancer.Endpoint endpoint : balancer.endpoints()) {
+        balancer.onComplete(endpoint, endpoint.baseUrl.equals("http://c") ? SLOW : FAST, false);
+      }
+    }
+    assertFalse(balancer.endpoints().get(0).isEjected());
+    assertTrue(balancer.endpoints().get(2).isEjected());
+  }
+}
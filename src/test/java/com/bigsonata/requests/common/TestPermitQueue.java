@@ -0,0 +1,62 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestPermitQueue {
+  @Test
+  public void testQueueing() {
+    PermitQueue permits = new PermitQueue(2);
+    List<Integer> started = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      int id = i;
+      permits.submit(() -> started.add(id));
+    }
+    assertEquals(2, started.size());
+    assertEquals(3, permits.pending());
+
+    permits.release();
+    assertEquals(3, started.size());
+    assertEquals(2, permits.inUse());
+
+    permits.limit(4);
+    assertEquals(5, started.size());
+    assertEquals(4, permits.inUse());
+
+    permits.limit(1);
+    permits.release();
+    permits.release();
+    permits.release();
+    permits.submit(() -> started.add(5));
+    assertEquals(5, started.size());
+    permits.release();
+    assertEquals(6, started.size());
+    assertEquals(0, permits.pending());
+  }
+
+  @Test
+  public void testTasksReleasingSynchronously() {
+    PermitQueue permits = new PermitQueue(1);
+    List<Integer> started = new ArrayList<>();
+    permits.submit(() -> started.add(-1)); // holds the only permit
+    int count = 100000;
+    for (int i = 0; i < count; i++) {
+      int id = i;
+      permits.submit(
+          () -> {
+            started.add(id);
+            permits.release(); // e.g. failing before reaching the wire
+          });
+    }
+    assertEquals(count, permits.pending());
+
+    permits.release(); // must not recurse once per queued task
+    assertEquals(count + 1, started.size());
+    assertEquals(0, permits.pending());
+    assertEquals(0, permits.inUse());
+  }
+}
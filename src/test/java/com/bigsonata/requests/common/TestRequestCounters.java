@@ -0,0 +1,42 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestRequestCounters {
+  @Test
+  public void testCounters() {
+    RequestCounters counters = new RequestCounters();
+    RequestCounters.Counters get = counters.of("localhost:80", "GET");
+
+    get.onStart();
+    assertEquals(1, counters.total().getInFlight());
+    assertEquals(1, counters.total().getAwaitingConnection());
+    get.onConnection();
+    assertEquals(0, counters.total().getAwaitingConnection());
+    get.onResponse(503);
+
+    get.onStart();
+    get.onFailure(new ConnectException(), false);
+    get.onStart();
+    get.onConnection();
+    get.onFailure(new TimeoutException(), true);
+
+    counters.of("localhost:80", "POST").onStart();
+
+    RequestCounters.Snapshot total = counters.total();
+    assertEquals(2, counters.snapshot().size());
+    assertEquals(4, total.getRequests());
+    assertEquals(1, total.getInFlight());
+    assertEquals(1, total.getAwaitingConnection());
+    assertEquals(1, total.getResponses());
+    assertEquals(1, total.getServerErrors());
+    assertEquals(2, total.getFailures());
+    assertEquals(1, total.getConnectErrors());
+    assertEquals(1, total.getTimeouts());
+  }
+}
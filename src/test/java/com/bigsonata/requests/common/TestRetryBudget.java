@@ -0,0 +1,28 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestRetryBudget {
+  @Test
+  public void testBudget() {
+    RetryBudget budget = new RetryBudget(0.25, 2);
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+
+    for (int i = 0; i < 8; i++) {
+      budget.deposit();
+    }
+    assertEquals(2, budget.available());
+
+    // Never accumulates more than the reserve
+    for (int i = 0; i < 100; i++) {
+      budget.deposit();
+    }
+    assertEquals(2, budget.available());
+  }
+}
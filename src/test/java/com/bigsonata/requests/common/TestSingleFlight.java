@@ -0,0 +1,58 @@
+package com.bigsonata.requests.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSingleFlight {
+  @Test
+  public void testCoalescing() {
+    SingleFlight<String> singleFlight = new SingleFlight<>();
+    List<Consumer<String>> calls = new ArrayList<>();
+    List<String> results = new ArrayList<>();
+
+    assertTrue(singleFlight.execute("a", calls::add, results::add, e -> null));
+    assertFalse(singleFlight.execute("a", calls::add, results::add, e -> null));
+    assertTrue(singleFlight.execute("b", calls::add, results::add, e -> null));
+    assertEquals(2, calls.size());
+    assertEquals(2, singleFlight.size());
+
+    calls.get(0).accept("A");
+    assertEquals(2, results.size());
+    assertEquals("A", results.get(1));
+
+    // Completed calls are not joined
+    assertTrue(singleFlight.execute("a", calls::add, results::add, e -> null));
+    assertEquals(3, calls.size());
+  }
+
+  @Test
+  public void testThrowingCall() {
+    SingleFlight<String> singleFlight = new SingleFlight<>();
+    List<String> results = new ArrayList<>();
+
+    assertTrue(
+        singleFlight.execute(
+            "a",
+            done -> {
+              throw new IllegalArgumentException("bad url");
+            },
+            results::add,
+            e -> "failed: " + e.getMessage()));
+    assertEquals(1, results.size());
+    assertEquals("failed: bad url", results.get(0));
+    assertEquals(0, singleFlight.size());
+
+    // Later calls start afresh instead of joining the failed one
+    List<Consumer<String>> calls = new ArrayList<>();
+    assertTrue(singleFlight.execute("a", calls::add, results::add, e -> null));
+    calls.get(0).accept("A");
+    assertEquals("A", results.get(1));
+  }
+}
@@ -2,10 +2,14 @@ package com.bigsonata.requests.common;
 
 import org.junit.Test;
 
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * TestURIBuilder
@@ -54,4 +58,66 @@ public class TestUriBuilder {
 
     assertEquals("https://bigsonata.com?test=a&test=b", builder.buildString());
   }
+
+  @Test
+  public void testDigestedQuery() {
+    UriBuilder builder = new UriBuilder("https://bigsonata.com/search?q=a%20b&page=2");
+    assertEquals("https://bigsonata.com/search?q=a%20b&page=2", builder.buildString());
+
+    builder.addParameter("size", "10");
+    List<UriBuilder.BasicNameValuePair> params = builder.getQueryParams();
+    assertEquals(3, params.size());
+    assertEquals(new UriBuilder.BasicNameValuePair("q", "a b"), params.get(0));
+    assertEquals(new UriBuilder.BasicNameValuePair("size", "10"), params.get(2));
+  }
+
+  @Test
+  public void testEncodeLikeUrlEncoder() throws Exception {
+    String alphabet = "aZ09 -_.*~+&=/?#%:@!$'(),;\u00e9\u4e2d\ud83d\ude00";
+    Random random = new Random(42);
+    for (int i = 0; i < 1000; i++) {
+      StringBuilder value = new StringBuilder();
+      for (int j = random.nextInt(8); j > 0; j--) {
+        int index = random.nextInt(alphabet.length());
+        if (Character.isHighSurrogate(alphabet.charAt(index))) {
+          value.append(alphabet, index, index + 2);
+        } else if (!Character.isLowSurrogate(alphabet.charAt(index))) {
+          value.append(alphabet.charAt(index));
+        }
+      }
+      String expected = URLEncoder.encode(value.toString(), "UTF-8");
+      assertEquals(
+          "https://a.b?k=" + expected,
+          new UriBuilder("https://a.b").addParameter("k", value.toString()).buildString());
+    }
+  }
+
+  @Test
+  public void testEncodeComponents() {
+    String plain = "users-42_a.b~c";
+    assertSame(plain, UriBuilder.encodePathSegment(plain));
+    assertSame(plain, UriBuilder.encodeQueryParameter(plain));
+    assertEquals("a%20b%2Fc+d%3F", UriBuilder.encodePathSegment("a b/c+d?"));
+    assertEquals("a%20b/c%2Bd%26e%3Df%23", UriBuilder.encodeQueryParameter("a b/c+d&e=f#"));
+    assertEquals("%C3%A9%F0%9F%98%80", UriBuilder.encodePathSegment("\u00e9\ud83d\ude00"));
+  }
+
+  @Test
+  public void testTemplate() {
+    UriBuilder.Template template = UriBuilder.compile("/users/{id}/orders?since={ts}&x=1");
+    assertEquals(Arrays.asList("id", "ts"), template.names());
+    assertEquals("/users/42/orders?since=7&x=1", template.expand(42, 7L));
+    assertEquals(
+        "/users/a%2Fb/orders?since=1%262&x=1", template.expand("a/b", new StringBuilder("1&2")));
+
+    StringBuilder url = new StringBuilder("http://api");
+    template.expand(url, "x", "y");
+    assertEquals("http://api/users/x/orders?since=y&x=1", url.toString());
+    assertEquals("/static", UriBuilder.compile("/static").expand());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTemplateArity() {
+    UriBuilder.compile("/users/{id}").expand();
+  }
 }
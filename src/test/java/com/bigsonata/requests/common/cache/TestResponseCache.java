@@ -0,0 +1,82 @@
+package com.bigsonata.requests.common.cache;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestResponseCache {
+  private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+  private static HttpHeaders headers(String... pairs) {
+    HttpHeaders headers = new DefaultHttpHeaders();
+    for (int i = 0; i < pairs.length; i += 2) {
+      headers.add(pairs[i], pairs[i + 1]);
+    }
+    return headers;
+  }
+
+  @Test
+  public void testFreshness() {
+    ResponseCache cache = new ResponseCache(1000, false);
+    cache.put("a", NO_HEADERS, 200, headers("Cache-Control", "max-age=10"), new byte[10], 0, 0);
+    cache.put("b", NO_HEADERS, 200, headers("Cache-Control", "no-store"), new byte[10], 0, 0);
+    cache.put("c", NO_HEADERS, 200, headers(), new byte[10], 0, 0);
+    HttpHeaders validated = headers("ETag", "\"1\"", "Cache-Control", "no-cache");
+    cache.put("d", NO_HEADERS, 200, validated, new byte[10], 0, 0);
+    assertEquals(2, cache.size());
+
+    ResponseCache.Entry entry = cache.get("a", NO_HEADERS, 5000);
+    assertTrue(entry.isFresh(5000, NO_HEADERS));
+    assertFalse(entry.isFresh(10000, NO_HEADERS));
+    assertFalse(entry.isFresh(5000, Collections.singletonMap("Cache-Control", "no-cache")));
+
+    entry = cache.get("d", NO_HEADERS, 0);
+    assertFalse(entry.isFresh(0, NO_HEADERS));
+    entry = cache.revalidated(entry, headers("Cache-Control", "max-age=10"), 100, 100);
+    assertTrue(entry.isFresh(5000, NO_HEADERS));
+    assertEquals("\"1\"", entry.etag());
+    assertEquals(1, cache.revalidations());
+  }
+
+  @Test
+  public void testVary() {
+    ResponseCache cache = new ResponseCache(1000, true);
+    Map<String, String> json = new HashMap<>();
+    json.put("Accept", "application/json");
+    HttpHeaders varying = headers("Cache-Control", "max-age=10", "Vary", "accept");
+    cache.put("a", json, 200, varying, "{}".getBytes(), 0, 0);
+
+    assertNull(cache.get("a", NO_HEADERS, 0));
+    ResponseCache.Entry entry = cache.get("a", json, 0);
+    assertNotNull(entry);
+    assertEquals("{}", new String(entry.body()));
+  }
+
+  @Test
+  public void testEviction() {
+    ResponseCache cache = new ResponseCache(1000, false);
+    HttpHeaders fresh = headers("Cache-Control", "max-age=10");
+    cache.put("hot", NO_HEADERS, 200, fresh, new byte[200], 0, 0);
+    cache.get("hot", NO_HEADERS, 0); // promoted to the protected segment
+    for (int i = 0; i < 10; i++) {
+      cache.put("cold" + i, NO_HEADERS, 200, fresh, new byte[200], 0, 0);
+    }
+    assertTrue(cache.weight() <= 1000);
+    assertNotNull(cache.get("hot", NO_HEADERS, 0));
+    assertNull(cache.get("cold0", NO_HEADERS, 0));
+    assertNotNull(cache.get("cold9", NO_HEADERS, 0));
+
+    // Too large for the probationary segment
+    assertNull(cache.put("large", NO_HEADERS, 200, fresh, new byte[300], 0, 0));
+  }
+}
@@ -0,0 +1,80 @@
+package com.bigsonata.requests.common.compression;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestContentCoding {
+  private static final int[] SIZES = {0, 1, 8191, 8192, 100000};
+
+  private static byte[] body(int size) {
+    byte[] body = new byte[size];
+    new Random(size).nextBytes(body);
+    return body;
+  }
+
+  private static byte[] readAll(InputStream input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[777];
+    int read;
+    while ((read = input.read(buffer)) >= 0) {
+      output.write(buffer, 0, read);
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] gunzip(byte[] input) throws IOException {
+    return readAll(new GZIPInputStream(new ByteArrayInputStream(input)));
+  }
+
+  private static byte[] inflate(byte[] input) throws IOException {
+    return readAll(new InflaterInputStream(new ByteArrayInputStream(input)));
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    for (int size : SIZES) {
+      byte[] body = body(size);
+      assertArrayEquals(body, gunzip(ContentCoding.GZIP.compress(body)));
+      byte[] streamed = readAll(ContentCoding.GZIP.compress(new ByteArrayInputStream(body)));
+      assertArrayEquals(body, gunzip(streamed));
+    }
+  }
+
+  @Test
+  public void testDeflate() throws Exception {
+    for (int size : SIZES) {
+      byte[] body = body(size);
+      assertArrayEquals(body, inflate(ContentCoding.DEFLATE.compress(body)));
+      byte[] streamed = readAll(ContentCoding.DEFLATE.compress(new ByteArrayInputStream(body)));
+      assertArrayEquals(body, inflate(streamed));
+    }
+  }
+
+  @Test
+  public void testCompressible() throws Exception {
+    byte[] body = new byte[100000];
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) (i % 97);
+    }
+    assertTrue(ContentCoding.GZIP.compress(body).length < body.length / 10);
+  }
+
+  @Test
+  public void testIdentity() {
+    byte[] body = body(10);
+    InputStream stream = new ByteArrayInputStream(body);
+    assertSame(body, ContentCoding.IDENTITY.compress(body));
+    assertSame(stream, ContentCoding.IDENTITY.compress(stream));
+  }
+}
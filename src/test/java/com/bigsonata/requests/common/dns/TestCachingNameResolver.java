@@ -0,0 +1,101 @@
+package com.bigsonata.requests.common.dns;
+
+import io.netty.resolver.InetNameResolver;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCachingNameResolver {
+  /** Resolves "known" to an address which changes on every query, and fails otherwise */
+  private static class CountingResolver extends InetNameResolver {
+    int queries = 0;
+    List<Promise<List<InetAddress>>> held = null; // holds queries when not null
+
+    CountingResolver() {
+      super(ImmediateEventExecutor.INSTANCE);
+    }
+
+    @Override
+    protected void doResolve(String inetHost, Promise<InetAddress> promise) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void doResolveAll(String inetHost, Promise<List<InetAddress>> promise)
+        throws Exception {
+      queries++;
+      if (held != null) {
+        held.add(promise);
+      } else if (inetHost.equals("known")) {
+        promise.setSuccess(address(queries));
+      } else {
+        promise.setFailure(new UnknownHostException(inetHost));
+      }
+    }
+  }
+
+  private static List<InetAddress> address(int last) throws UnknownHostException {
+    return Collections.singletonList(InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) last}));
+  }
+
+  private static CachingNameResolver cache(CountingResolver delegate, long ttl) {
+    return new CachingNameResolver(delegate, ImmediateEventExecutor.INSTANCE, ttl, ttl, 10);
+  }
+
+  @Test
+  public void testCaching() throws Exception {
+    CountingResolver delegate = new CountingResolver();
+    CachingNameResolver resolver = cache(delegate, 60000);
+    assertEquals(address(1), resolver.resolveAll("known").get());
+    assertEquals(address(1), resolver.resolveAll("known").get());
+    assertEquals(address(1).get(0), resolver.resolve("known").get());
+    assertEquals(1, delegate.queries);
+
+    // Failures are cached too
+    assertFalse(resolver.resolveAll("unknown").await().isSuccess());
+    assertFalse(resolver.resolveAll("unknown").await().isSuccess());
+    assertEquals(2, delegate.queries);
+  }
+
+  @Test
+  public void testRefreshAhead() throws Exception {
+    CountingResolver delegate = new CountingResolver();
+    CachingNameResolver resolver = cache(delegate, 200);
+    assertEquals(address(1), resolver.resolveAll("known").get());
+    Thread.sleep(160);
+
+    // Served from the cache while refreshing
+    delegate.held = new ArrayList<>();
+    assertEquals(address(1), resolver.resolveAll("known").get());
+    assertEquals(address(1), resolver.resolveAll("known").get());
+    assertEquals(2, delegate.queries);
+    delegate.held.get(0).setSuccess(address(7));
+    assertEquals(address(7), resolver.resolveAll("known").get());
+  }
+
+  @Test
+  public void testCoalescing() throws Exception {
+    CountingResolver delegate = new CountingResolver();
+    delegate.held = new ArrayList<>();
+    CachingNameResolver resolver = cache(delegate, 60000);
+    Future<List<InetAddress>> first = resolver.resolveAll("known");
+    Future<List<InetAddress>> second = resolver.resolveAll("known");
+    assertEquals(1, delegate.queries);
+    assertFalse(first.isDone());
+
+    delegate.held.get(0).setSuccess(address(3));
+    assertTrue(first.isSuccess());
+    assertEquals(address(3), second.get());
+  }
+}
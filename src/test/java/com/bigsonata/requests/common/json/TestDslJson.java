@@ -3,6 +3,11 @@ package com.bigsonata.requests.common.json;
 import com.dslplatform.json.CompiledJson;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.*;
 
 public class TestDslJson {
@@ -29,6 +34,10 @@ public class TestDslJson {
     }
   }
 
+  public static class Label {
+    public String text = "";
+  }
+
   @Test
   public void testSerialize() throws Exception {
     DslJsonCodec codec = new DslJsonCodec(Point.class, Circle.class);
@@ -75,4 +84,48 @@ public class TestDslJson {
     Circle clone = codec.deserialize(Circle.class, output.getBytes());
     assertEquals(clone.radius, 5);
   }
+
+  @Test
+  public void testSerializeToBytes() throws Exception {
+    DslJsonCodec codec = new DslJsonCodec(Point.class, Circle.class);
+
+    Point center = new Point(3, 5);
+    byte[] output = codec.serializeToBytes(center);
+    assertArrayEquals(codec.serialize(center).getBytes(StandardCharsets.UTF_8), output);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    codec.serialize(center, os);
+    assertArrayEquals(output, os.toByteArray());
+  }
+
+  @Test
+  public void testDeserializeSlice() throws Exception {
+    DslJsonCodec codec = new DslJsonCodec(Point.class, Circle.class);
+
+    byte[] json = codec.serializeToBytes(new Point(3, 5));
+    byte[] padded = new byte[json.length + 8];
+    System.arraycopy(json, 0, padded, 4, json.length);
+
+    Point point = codec.deserialize(Point.class, padded, 4, json.length);
+    assertEquals(3, point.x);
+    assertEquals(5, point.y);
+
+    point = codec.deserialize(Point.class, ByteBuffer.wrap(padded, 4, json.length));
+    assertEquals(3, point.x);
+
+    point = codec.deserialize(Point.class, new ByteArrayInputStream(json));
+    assertEquals(5, point.y);
+  }
+
+  @Test
+  public void testLazyRegistration() throws Exception {
+    DslJsonCodec codec = new DslJsonCodec(Point.class);
+
+    Label label = new Label();
+    label.text = "requests";
+    String output = codec.serialize(label);
+
+    Label clone = codec.deserialize(Label.class, output.getBytes(StandardCharsets.UTF_8));
+    assertEquals(label.text, clone.text);
+  }
 }